@@ -0,0 +1,67 @@
+package SocialTalk.Auth_Service.Benchmark;
+
+import SocialTalk.Auth_Service.Model.User;
+import SocialTalk.Auth_Service.Service.JwtKeyRing;
+import SocialTalk.Auth_Service.Service.JwtService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+final class BenchmarkFixtures {
+    static final long JWT_EXPIRATION = 3_600_000;
+
+    private BenchmarkFixtures()
+    {
+    }
+
+    static JwtService jwtService(String algorithm)
+    {
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+
+        JwtKeyRing keyRing = new JwtKeyRing(new DefaultResourceLoader());
+        ReflectionTestUtils.setField(keyRing, "algorithmName", algorithm);
+        ReflectionTestUtils.setField(keyRing, "secretKey", Base64.getEncoder().encodeToString(secret));
+        ReflectionTestUtils.setField(keyRing, "keystoreLocation", "");
+        ReflectionTestUtils.setField(keyRing, "keystoreType", "PKCS12");
+        ReflectionTestUtils.setField(keyRing, "keystorePassword", "");
+        ReflectionTestUtils.setField(keyRing, "activeKid", "");
+        ReflectionTestUtils.setField(keyRing, "resetSecretKey", "");
+        ReflectionTestUtils.setField(keyRing, "allowEphemeralKey", true);
+        ReflectionTestUtils.invokeMethod(keyRing, "init");
+
+        JwtService jwtService = new JwtService(keyRing, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", JWT_EXPIRATION);
+        ReflectionTestUtils.invokeMethod(jwtService, "init");
+        return jwtService;
+    }
+
+    static User user()
+    {
+        User user = new User("benchmark", "benchmark@example.com", "{noop}password");
+        user.setId(1L);
+        user.setEnabled(true);
+        return user;
+    }
+
+    static Map<String, Object> claims(User user, int claimCount, int claimSize)
+    {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(JwtService.USER_ID_CLAIM, user.getId());
+        claims.put(JwtService.EMAIL_CLAIM, user.getEmail());
+        claims.put(JwtService.USERNAME_CLAIM, user.getUsername());
+        claims.put(JwtService.ENABLED_CLAIM, user.isEnabled());
+        claims.put(JwtService.SECURITY_VERSION_CLAIM, user.getSecurityVersion());
+        String value = "x".repeat(claimSize);
+        for (int i = 0; i < claimCount; i++)
+        {
+            claims.put("claim" + i, value);
+        }
+        return claims;
+    }
+}
@@ -0,0 +1,62 @@
+package SocialTalk.Auth_Service.Benchmark;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Signup inserts per second with the GenerationType.AUTO default, blocks of 50 ids with the pooled optimizer, against
+ * the same blocks with pooled-lo. Both make one round trip to the id table per 50 inserts, so this checks that the
+ * optimizer switch costs nothing rather than expecting a gain. Uses H2, so only the ratio between the two matters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(16)
+public class IdAllocationBenchmark {
+    @Param({"auto", "pooled-lo"})
+    private String allocation;
+
+    private SessionFactory sessionFactory;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup
+    public void setup()
+    {
+        sessionFactory = new Configuration()
+                .addAnnotatedClass(IdAllocationEntities.AutoIdUser.class)
+                .addAnnotatedClass(IdAllocationEntities.PooledIdUser.class)
+                .setProperty("hibernate.connection.url", "jdbc:h2:mem:ids;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000")
+                .setProperty("hibernate.connection.username", "sa")
+                .setProperty("hibernate.connection.password", "")
+                // The id table is updated in its own transaction, so every thread can hold two connections at once
+                .setProperty("hibernate.connection.pool_size", "40")
+                .setProperty("hibernate.hbm2ddl.auto", "create-drop")
+                .buildSessionFactory();
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public Object insertUser()
+    {
+        String email = "user" + sequence.incrementAndGet() + "@benchmark.local";
+        Object user = allocation.equals("auto")
+                ? new IdAllocationEntities.AutoIdUser(email)
+                : new IdAllocationEntities.PooledIdUser(email);
+        try (Session session = sessionFactory.openSession()) {
+            session.beginTransaction();
+            session.persist(user);
+            session.getTransaction().commit();
+        }
+        return user;
+    }
+}
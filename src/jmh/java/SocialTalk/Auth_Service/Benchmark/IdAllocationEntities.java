@@ -0,0 +1,69 @@
+package SocialTalk.Auth_Service.Benchmark;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
+// Both generators are forced onto a single-row table, which is what Hibernate does for users_seq on MySQL.
+// AutoIdUser spells out what GenerationType.AUTO resolves to, so only the optimizer differs between the two.
+final class IdAllocationEntities {
+
+    private IdAllocationEntities()
+    {
+    }
+
+    @Entity
+    @Table(name = "users_auto_id")
+    static class AutoIdUser {
+        @Id
+        @GeneratedValue(generator = "auto_id_seq")
+        @GenericGenerator(name = "auto_id_seq", type = SequenceStyleGenerator.class, parameters = {
+                @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "auto_id_seq"),
+                @Parameter(name = SequenceStyleGenerator.FORCE_TBL_PARAM, value = "true"),
+                @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = "50"),
+                @Parameter(name = SequenceStyleGenerator.OPT_PARAM, value = "pooled")
+        })
+        Long id;
+        @Column(unique = true, nullable = false)
+        String email;
+
+        AutoIdUser()
+        {
+        }
+
+        AutoIdUser(String email)
+        {
+            this.email = email;
+        }
+    }
+
+    @Entity
+    @Table(name = "users_pooled_id")
+    static class PooledIdUser {
+        @Id
+        @GeneratedValue(generator = "pooled_id_seq")
+        @GenericGenerator(name = "pooled_id_seq", type = SequenceStyleGenerator.class, parameters = {
+                @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "pooled_id_seq"),
+                @Parameter(name = SequenceStyleGenerator.FORCE_TBL_PARAM, value = "true"),
+                @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = "50"),
+                @Parameter(name = SequenceStyleGenerator.OPT_PARAM, value = "pooled-lo")
+        })
+        Long id;
+        @Column(unique = true, nullable = false)
+        String email;
+
+        PooledIdUser()
+        {
+        }
+
+        PooledIdUser(String email)
+        {
+            this.email = email;
+        }
+    }
+}
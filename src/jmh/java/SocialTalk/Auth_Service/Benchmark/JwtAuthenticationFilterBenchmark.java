@@ -0,0 +1,84 @@
+package SocialTalk.Auth_Service.Benchmark;
+
+import SocialTalk.Auth_Service.Config.JwtAuthenticationFilter;
+import SocialTalk.Auth_Service.Model.User;
+import SocialTalk.Auth_Service.Repository.RevokedTokenRepository;
+import SocialTalk.Auth_Service.Repository.UserRepository;
+import SocialTalk.Auth_Service.Service.JwtService;
+import SocialTalk.Auth_Service.Service.SecurityVersionRegistry;
+import SocialTalk.Auth_Service.Service.TokenRevocationService;
+import SocialTalk.Auth_Service.Service.VerifiedTokenCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtAuthenticationFilterBenchmark {
+    @Param({"database", "token"})
+    private String principalMode;
+    @Param({"true", "false"})
+    private boolean cacheEnabled;
+
+    private JwtAuthenticationFilter filter;
+    private String authorization;
+    private final FilterChain filterChain = (request, response) -> {};
+
+    @Setup
+    public void setup()
+    {
+        JwtService jwtService = BenchmarkFixtures.jwtService("HS256");
+        User user = BenchmarkFixtures.user();
+
+        VerifiedTokenCache verifiedTokenCache = new VerifiedTokenCache(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(verifiedTokenCache, "enabled", cacheEnabled);
+        ReflectionTestUtils.setField(verifiedTokenCache, "maxSize", 10_000L);
+        ReflectionTestUtils.invokeMethod(verifiedTokenCache, "init");
+
+        SecurityVersionRegistry securityVersionRegistry = new SecurityVersionRegistry(Mockito.mock(UserRepository.class));
+        ReflectionTestUtils.setField(securityVersionRegistry, "jwtExpiration", BenchmarkFixtures.JWT_EXPIRATION);
+        ReflectionTestUtils.setField(securityVersionRegistry, "maxSize", 100_000L);
+        ReflectionTestUtils.setField(securityVersionRegistry, "reloadOverlap", Duration.ofMinutes(1));
+        ReflectionTestUtils.invokeMethod(securityVersionRegistry, "init");
+
+        TokenRevocationService tokenRevocationService = new TokenRevocationService(
+                Mockito.mock(RevokedTokenRepository.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.invokeMethod(tokenRevocationService, "init");
+
+        // Stands in for the cached user lookup, so the numbers exclude the database round trip
+        filter = new JwtAuthenticationFilter(
+                jwtService,
+                username -> user,
+                verifiedTokenCache,
+                securityVersionRegistry,
+                tokenRevocationService,
+                (request, response, handler, exception) -> null,
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(filter, "principalMode", principalMode);
+
+        authorization = "Bearer " + jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public Authentication doFilter() throws Exception
+    {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/users/me");
+        request.addHeader("Authorization", authorization);
+        try {
+            filter.doFilter(request, new MockHttpServletResponse(), filterChain);
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
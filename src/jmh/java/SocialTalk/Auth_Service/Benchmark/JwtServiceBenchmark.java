@@ -0,0 +1,53 @@
+package SocialTalk.Auth_Service.Benchmark;
+
+import SocialTalk.Auth_Service.Model.User;
+import SocialTalk.Auth_Service.Service.JwtService;
+import SocialTalk.Auth_Service.Service.VerifiedToken;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtServiceBenchmark {
+    @Param({"HS256", "RS256", "ES256"})
+    private String algorithm;
+    @Param({"0", "8", "32"})
+    private int claimCount;
+    @Param({"16", "256"})
+    private int claimSize;
+
+    private JwtService jwtService;
+    private User user;
+    private Map<String, Object> claims;
+    private String token;
+
+    @Setup
+    public void setup()
+    {
+        jwtService = BenchmarkFixtures.jwtService(algorithm);
+        user = BenchmarkFixtures.user();
+        claims = BenchmarkFixtures.claims(user, claimCount, claimSize);
+        token = jwtService.generateToken(claims, user);
+    }
+
+    @Benchmark
+    public String generateToken()
+    {
+        return jwtService.generateToken(claims, user);
+    }
+
+    @Benchmark
+    public VerifiedToken verify()
+    {
+        return jwtService.verify(token);
+    }
+
+    @Benchmark
+    public boolean isTokenValid()
+    {
+        return jwtService.isTokenValid(token, user);
+    }
+}
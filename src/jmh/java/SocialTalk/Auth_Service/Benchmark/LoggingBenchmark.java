@@ -0,0 +1,108 @@
+package SocialTalk.Auth_Service.Benchmark;
+
+import SocialTalk.Auth_Service.Config.LogSamplingTurboFilter;
+import SocialTalk.Auth_Service.Model.User;
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per-request log lines before and after the production logging profile: a synchronous appender with
+ * eagerly rendered entities against the asynchronous, sampled appender with lazy arguments. Output goes to a
+ * discarding stream so only the logging overhead is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(4)
+public class LoggingBenchmark {
+    @Param({"sync", "async", "async-sampled"})
+    private String pipeline;
+
+    private LoggerContext context;
+    private Logger logger;
+    private User user;
+
+    @Setup
+    public void setup()
+    {
+        context = new LoggerContext();
+        user = BenchmarkFixtures.user();
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd HH:mm:ss} [%thread] %-5level %logger{36} - %msg %kvp%n");
+        encoder.start();
+
+        OutputStreamAppender<ILoggingEvent> output = new OutputStreamAppender<>();
+        output.setContext(context);
+        output.setEncoder(encoder);
+        output.setOutputStream(OutputStream.nullOutputStream());
+        output.start();
+
+        Appender<ILoggingEvent> appender = output;
+        if (!pipeline.equals("sync"))
+        {
+            AsyncAppender async = new AsyncAppender();
+            async.setContext(context);
+            async.setQueueSize(8192);
+            async.setNeverBlock(true);
+            async.addAppender(output);
+            async.start();
+            appender = async;
+        }
+        if (pipeline.equals("async-sampled"))
+        {
+            LogSamplingTurboFilter sampling = new LogSamplingTurboFilter();
+            sampling.setContext(context);
+            sampling.addLogger("SocialTalk.Auth_Service.Controller");
+            sampling.setEventsPerSecond(50);
+            sampling.start();
+            context.addTurboFilter(sampling);
+        }
+
+        Logger root = context.getLogger(Logger.ROOT_LOGGER_NAME);
+        root.setLevel(Level.INFO);
+        root.addAppender(appender);
+        logger = context.getLogger("SocialTalk.Auth_Service.Controller.UserController");
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        context.stop();
+    }
+
+    @Benchmark
+    public void eagerEntityAtInfo()
+    {
+        logger.info("Controller: Found user: " + user.getId() + " " + user.getUsername() + " " + user.getEmail());
+    }
+
+    @Benchmark
+    public void lazyKeyValueAtInfo()
+    {
+        logger.atInfo().setMessage("Controller: Found user").addKeyValue("userId", user::getId).log();
+    }
+
+    @Benchmark
+    public void eagerEntityAtDebug()
+    {
+        logger.debug("Controller: Found user: " + user.getId() + " " + user.getUsername() + " " + user.getEmail());
+    }
+
+    @Benchmark
+    public void lazyKeyValueAtDebug()
+    {
+        logger.atDebug().setMessage("Controller: Found user").addKeyValue("userId", user::getId).log();
+    }
+}
@@ -0,0 +1,40 @@
+package SocialTalk.Auth_Service.Benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+public class PasswordEncoderBenchmark {
+    @Param({"10", "12"})
+    private int strength;
+
+    private BCryptPasswordEncoder passwordEncoder;
+    private String password;
+    private String hash;
+
+    @Setup
+    public void setup()
+    {
+        passwordEncoder = new BCryptPasswordEncoder(strength);
+        password = "correct horse battery staple";
+        hash = passwordEncoder.encode(password);
+    }
+
+    @Benchmark
+    public String encode()
+    {
+        return passwordEncoder.encode(password);
+    }
+
+    @Benchmark
+    public boolean matches()
+    {
+        return passwordEncoder.matches(password, hash);
+    }
+}
@@ -0,0 +1,221 @@
+package SocialTalk.Auth_Service.LoadTest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives signup, verification, login, profile reads and password resets against the full application,
+ * backed by H2 and GreenMail. Configured with -PloadTest.* properties, see build.gradle.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("loadtest")
+class AuthLoadTest {
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private static final Pattern VERIFICATION_CODE = Pattern.compile("Verification Code: (\\d{6})");
+    private static final Duration EMAIL_TIMEOUT = Duration.ofSeconds(30);
+
+    private final int concurrency = Integer.getInteger("loadTest.concurrency", 16);
+    private final Duration duration = Duration.parse(System.getProperty("loadTest.duration", "PT30S"));
+    private final int profileReads = Integer.getInteger("loadTest.profileReads", 10);
+    private final double resetRatio = Double.parseDouble(System.getProperty("loadTest.resetRatio", "0.1"));
+    private final double maxErrorRate = Double.parseDouble(System.getProperty("loadTest.maxErrorRate", "0.01"));
+    private final Path reportFile = Path.of(System.getProperty("loadTest.report", "build/reports/load-test/report.json"));
+
+    @LocalServerPort
+    private int port;
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final AtomicLong userSequence = new AtomicLong();
+    private final LoadReport report = new LoadReport();
+    private HttpClient client;
+
+    @Test
+    void signupVerifyLoginAndResetPassword() throws Exception
+    {
+        client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+        List<Future<?>> sessions = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++)
+        {
+            sessions.add(clients.submit(() -> {
+                while (System.nanoTime() < deadline)
+                {
+                    runSession(userSequence.incrementAndGet());
+                }
+                return null;
+            }));
+        }
+        for (Future<?> session : sessions)
+        {
+            session.get();
+        }
+        clients.shutdown();
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        Map<String, Object> summary = report.summary(elapsed, concurrency, virtualThreads);
+        String json = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(summary);
+        Files.createDirectories(reportFile.toAbsolutePath().getParent());
+        Files.writeString(reportFile, json);
+        System.out.println(json);
+
+        assertTrue(report.totalRequests() > 0, "No requests were completed");
+        assertTrue((double) report.totalErrors() / report.totalRequests() <= maxErrorRate,
+                "Error rate exceeded " + maxErrorRate + ", see " + reportFile);
+    }
+
+    private void runSession(long id) throws Exception
+    {
+        String email = "user" + id + "@loadtest.local";
+        String password = "Password-" + id;
+
+        if (call("signup", post("/auth/signup", Map.of("username", "user" + id, "email", email, "password", password))) == null)
+        {
+            return;
+        }
+        String code = awaitVerificationCode(email);
+        if (code == null)
+        {
+            report.record("verificationEmail", EMAIL_TIMEOUT.toNanos(), -1);
+            return;
+        }
+        if (call("verify", post("/auth/verify", Map.of("email", email, "verificationCode", code))) == null)
+        {
+            return;
+        }
+
+        String token = login(email, password);
+        if (token == null)
+        {
+            return;
+        }
+        for (int i = 0; i < profileReads; i++)
+        {
+            call("me", HttpRequest.newBuilder(uri("/users/me"))
+                    .header("Authorization", "Bearer " + token)
+                    .GET()
+                    .build());
+        }
+
+        if (ThreadLocalRandom.current().nextDouble() < resetRatio)
+        {
+            resetPassword(email, password + "-reset");
+        }
+    }
+
+    private String login(String email, String password) throws Exception
+    {
+        HttpResponse<String> response = call("login", post("/auth/login", Map.of("email", email, "password", password)));
+        return response != null ? objectMapper.readTree(response.body()).get("token").asText() : null;
+    }
+
+    private void resetPassword(String email, String newPassword) throws Exception
+    {
+        HttpResponse<String> response = call("resetPasswordRequest", HttpRequest.newBuilder(uri("/auth/resetPasswordRequest?email=" + email))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build());
+        String cookie = response == null ? null : response.headers().allValues("Set-Cookie").stream()
+                .filter(value -> value.startsWith("resetToken="))
+                .map(value -> value.split(";", 2)[0])
+                .findFirst()
+                .orElse(null);
+        if (cookie == null)
+        {
+            return;
+        }
+
+        HttpResponse<String> reset = call("resetPassword", HttpRequest.newBuilder(uri("/auth/resetPassword"))
+                .header("Content-Type", "application/json")
+                .header("Cookie", cookie)
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(Map.of("newPassword", newPassword))))
+                .build());
+        if (reset != null)
+        {
+            login(email, newPassword);
+        }
+    }
+
+    private String awaitVerificationCode(String email) throws Exception
+    {
+        long deadline = System.nanoTime() + EMAIL_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline)
+        {
+            for (MimeMessage message : greenMail.getReceivedMessagesForDomain(email))
+            {
+                Matcher matcher = VERIFICATION_CODE.matcher(GreenMailUtil.getBody(message));
+                if (matcher.find())
+                {
+                    return matcher.group(1);
+                }
+            }
+            Thread.sleep(50);
+        }
+        return null;
+    }
+
+    private HttpResponse<String> call(String operation, HttpRequest request) throws InterruptedException
+    {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            report.record(operation, System.nanoTime() - start, response.statusCode());
+            return response.statusCode() == 200 ? response : null;
+        } catch (IOException e) {
+            report.record(operation, System.nanoTime() - start, -1);
+            return null;
+        }
+    }
+
+    private HttpRequest post(String path, Map<String, String> body) throws IOException
+    {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                .build();
+    }
+
+    private URI uri(String path)
+    {
+        return URI.create("http://localhost:" + port + path);
+    }
+}
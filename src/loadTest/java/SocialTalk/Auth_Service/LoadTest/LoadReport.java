@@ -0,0 +1,82 @@
+package SocialTalk.Auth_Service.LoadTest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+class LoadReport {
+    private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+
+    void record(String operation, long elapsedNanos, int status)
+    {
+        operations.computeIfAbsent(operation, name -> new Operation()).record(elapsedNanos, status);
+    }
+
+    long totalRequests()
+    {
+        return operations.values().stream().mapToLong(operation -> operation.latency.getTotalCount()).sum();
+    }
+
+    long totalErrors()
+    {
+        return operations.values().stream().mapToLong(operation -> operation.errors.sum()).sum();
+    }
+
+    Map<String, Object> summary(Duration elapsed, int concurrency, boolean virtualThreads)
+    {
+        double seconds = elapsed.toNanos() / 1e9;
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("concurrency", concurrency);
+        summary.put("virtualThreads", virtualThreads);
+        summary.put("durationSeconds", seconds);
+        summary.put("requests", totalRequests());
+        summary.put("throughput", totalRequests() / seconds);
+        summary.put("errorRate", totalRequests() == 0 ? 0.0 : (double) totalErrors() / totalRequests());
+
+        Map<String, Object> byOperation = new LinkedHashMap<>();
+        new TreeMap<>(operations).forEach((name, operation) -> byOperation.put(name, operation.summary(seconds)));
+        summary.put("operations", byOperation);
+        return summary;
+    }
+
+    private static class Operation {
+        private final Histogram latency = new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(1), 3);
+        private final LongAdder errors = new LongAdder();
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+        private void record(long elapsedNanos, int status)
+        {
+            latency.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(elapsedNanos), latency.getHighestTrackableValue()));
+            statuses.computeIfAbsent(status, code -> new LongAdder()).increment();
+            if (status < 200 || status >= 300)
+            {
+                errors.increment();
+            }
+        }
+
+        private Map<String, Object> summary(double seconds)
+        {
+            long requests = latency.getTotalCount();
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("requests", requests);
+            summary.put("throughput", requests / seconds);
+            summary.put("errorRate", requests == 0 ? 0.0 : (double) errors.sum() / requests);
+            summary.put("p50Millis", latency.getValueAtPercentile(50) / 1000.0);
+            summary.put("p90Millis", latency.getValueAtPercentile(90) / 1000.0);
+            summary.put("p99Millis", latency.getValueAtPercentile(99) / 1000.0);
+            summary.put("p999Millis", latency.getValueAtPercentile(99.9) / 1000.0);
+            summary.put("maxMillis", latency.getMaxValue() / 1000.0);
+            Map<Integer, Long> byStatus = new TreeMap<>();
+            statuses.forEach((status, count) -> byStatus.put(status, count.sum()));
+            summary.put("statuses", byStatus);
+            return summary;
+        }
+    }
+}
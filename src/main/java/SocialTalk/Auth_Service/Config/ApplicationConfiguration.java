@@ -1,6 +1,10 @@
 package SocialTalk.Auth_Service.Config;
 
 import SocialTalk.Auth_Service.Repository.UserRepository;
+import SocialTalk.Auth_Service.Service.CachedUserDetailsService;
+import SocialTalk.Auth_Service.Service.SecurityVersionRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -9,28 +13,80 @@ import org.springframework.security.authentication.dao.DaoAuthenticationProvider
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
 
 @Configuration
 public class ApplicationConfiguration {
+    @Value("${security.user-cache.ttl:PT5M}")
+    private Duration userCacheTtl;
+    @Value("${security.user-cache.max-size:10000}")
+    private long userCacheMaxSize;
+    @Value("${security.password.hashing.threads:0}")
+    private int hashingThreads;
+    @Value("${security.password.hashing.queue-capacity:64}")
+    private int hashingQueueCapacity;
+    @Value("${security.password.algorithm:bcrypt}")
+    private String passwordAlgorithm;
+    @Value("${security.password.bcrypt.strength:12}")
+    private int bcryptStrength;
+    @Value("${security.password.bcrypt.min-strength:10}")
+    private int bcryptMinStrength;
+    @Value("${security.password.bcrypt.max-strength:14}")
+    private int bcryptMaxStrength;
+    @Value("${security.password.hash-budget:PT0.25S}")
+    private Duration hashBudget;
     private final UserRepository userRepository;
+    private final SecurityVersionRegistry securityVersionRegistry;
+    private final MeterRegistry meterRegistry;
 
-    public ApplicationConfiguration(UserRepository userRepository)
+    public ApplicationConfiguration(
+            UserRepository userRepository,
+            SecurityVersionRegistry securityVersionRegistry,
+            MeterRegistry meterRegistry)
     {
         this.userRepository = userRepository;
+        this.securityVersionRegistry = securityVersionRegistry;
+        this.meterRegistry = meterRegistry;
     }
 
     @Bean
-    UserDetailsService userDetailsService()
+    CachedUserDetailsService userDetailsService()
     {
-        return userName -> userRepository.findByEmail(userName)
+        UserDetailsService repositoryUserDetailsService = userName -> userRepository.findByEmail(userName)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+        return new CachedUserDetailsService(
+                repositoryUserDetailsService,
+                securityVersionRegistry,
+                userCacheTtl,
+                userCacheMaxSize,
+                meterRegistry);
     }
 
     @Bean
-    BCryptPasswordEncoder passwordEncoder()
+    PasswordEncoder passwordEncoder()
     {
-        return new BCryptPasswordEncoder();
+        int threads = hashingThreads > 0 ? hashingThreads : Runtime.getRuntime().availableProcessors();
+        CalibratedBCryptPasswordEncoder bcrypt = bcryptStrength > 0
+                ? new CalibratedBCryptPasswordEncoder(bcryptStrength)
+                : CalibratedBCryptPasswordEncoder.calibrate(hashBudget, bcryptMinStrength, bcryptMaxStrength, 5);
+
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", bcrypt);
+        encoders.put("argon2", Argon2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+        DelegatingPasswordEncoder delegatingEncoder = new DelegatingPasswordEncoder(passwordAlgorithm, encoders);
+        delegatingEncoder.setDefaultPasswordEncoderForMatches(bcrypt);
+
+        return new BoundedPasswordEncoder(
+                delegatingEncoder,
+                threads,
+                hashingQueueCapacity,
+                meterRegistry);
     }
 
     @Bean
@@ -0,0 +1,87 @@
+package SocialTalk.Auth_Service.Config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+public class CalibratedBCryptPasswordEncoder extends BCryptPasswordEncoder {
+    private static final Logger logger = LoggerFactory.getLogger(CalibratedBCryptPasswordEncoder.class);
+    private static final String CALIBRATION_PASSWORD = "calibration-password";
+
+    private final int strength;
+
+    public CalibratedBCryptPasswordEncoder(int strength)
+    {
+        super(strength);
+        this.strength = strength;
+    }
+
+    public int getStrength()
+    {
+        return strength;
+    }
+
+    // Only ever upgrade: instances configured with different strengths would otherwise re-hash the same password
+    // back and forth on every login
+    @Override
+    public boolean upgradeEncoding(String encodedPassword)
+    {
+        int encodedStrength = strengthOf(encodedPassword);
+        return encodedStrength > 0 && encodedStrength < strength;
+    }
+
+    public static CalibratedBCryptPasswordEncoder calibrate(Duration budget, int minStrength, int maxStrength, int samples)
+    {
+        int chosen = minStrength;
+        for (int candidate = minStrength; candidate <= maxStrength; candidate++)
+        {
+            long medianNanos = measure(candidate, samples);
+            logger.debug("BCrypt strength {} takes {} ms per hash", candidate, medianNanos / 1_000_000);
+            if (medianNanos > budget.toNanos())
+            {
+                break;
+            }
+            chosen = candidate;
+        }
+        logger.info("Calibrated BCrypt strength {} for a hashing budget of {} ms, "
+                + "set security.password.bcrypt.strength={} to use it on every instance", chosen, budget.toMillis(), chosen);
+        return new CalibratedBCryptPasswordEncoder(chosen);
+    }
+
+    private static long measure(int strength, int samples)
+    {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        encoder.encode(CALIBRATION_PASSWORD);
+        long[] durations = new long[Math.max(1, samples)];
+        for (int i = 0; i < durations.length; i++)
+        {
+            long start = System.nanoTime();
+            encoder.encode(CALIBRATION_PASSWORD);
+            durations[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(durations);
+        return durations[durations.length / 2];
+    }
+
+    static int strengthOf(String encodedPassword)
+    {
+        // BCrypt hashes look like $2a$10$<salt+hash>, the two digits after the version are the cost
+        if (encodedPassword == null || encodedPassword.length() < 7 || encodedPassword.charAt(0) != '$')
+        {
+            return -1;
+        }
+        int costStart = encodedPassword.indexOf('$', 1) + 1;
+        if (costStart <= 0 || costStart + 2 > encodedPassword.length())
+        {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(encodedPassword.substring(costStart, costStart + 2));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -4,7 +4,6 @@ package SocialTalk.Auth_Service.Config;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
 
 import java.util.Properties;
@@ -15,21 +14,41 @@ public class EmailConfiguration {
     private String emailUsername;
     @Value("${spring.mail.password}")
     private String password;
+    @Value("${spring.mail.host}")
+    private String host;
+    @Value("${spring.mail.port}")
+    private int port;
+    @Value("${spring.mail.properties.mail.smtp.auth:true}")
+    private boolean smtpAuth;
+    @Value("${spring.mail.properties.mail.smtp.starttls.enable:true}")
+    private boolean startTls;
+    @Value("${spring.mail.properties.mail.debug:false}")
+    private boolean debug;
+    // Milliseconds. Without them a stuck SMTP server blocks a pooled connection, and the worker using it, forever
+    @Value("${spring.mail.properties.mail.smtp.connectiontimeout:10000}")
+    private int connectionTimeout;
+    @Value("${spring.mail.properties.mail.smtp.timeout:15000}")
+    private int readTimeout;
+    @Value("${spring.mail.properties.mail.smtp.writetimeout:15000}")
+    private int writeTimeout;
 
     @Bean
-    public JavaMailSender javaMailSender()
+    public JavaMailSenderImpl javaMailSender()
     {
         JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
-        mailSender.setHost("smtp.gmail.com");
-        mailSender.setPort(587);
+        mailSender.setHost(host);
+        mailSender.setPort(port);
         mailSender.setUsername(emailUsername);
         mailSender.setPassword(password);
 
         Properties properties = mailSender.getJavaMailProperties();
         properties.put("mail.transport.protocol", "smtp");
-        properties.put("mail.smtp.auth", "true");
-        properties.put("mail.smtp.starttls.enable", "true");
-        properties.put("mail.debug", "true");
+        properties.put("mail.smtp.auth", String.valueOf(smtpAuth));
+        properties.put("mail.smtp.starttls.enable", String.valueOf(startTls));
+        properties.put("mail.debug", String.valueOf(debug));
+        properties.put("mail.smtp.connectiontimeout", String.valueOf(connectionTimeout));
+        properties.put("mail.smtp.timeout", String.valueOf(readTimeout));
+        properties.put("mail.smtp.writetimeout", String.valueOf(writeTimeout));
         return mailSender;
     }
 }
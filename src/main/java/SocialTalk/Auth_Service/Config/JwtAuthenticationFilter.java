@@ -1,11 +1,20 @@
 package SocialTalk.Auth_Service.Config;
 
+import SocialTalk.Auth_Service.Model.TokenPrincipal;
 import SocialTalk.Auth_Service.Service.JwtService;
+import SocialTalk.Auth_Service.Service.SecurityVersionRegistry;
+import SocialTalk.Auth_Service.Service.TokenRevocationService;
+import SocialTalk.Auth_Service.Service.VerifiedToken;
+import SocialTalk.Auth_Service.Service.VerifiedTokenCache;
+import io.jsonwebtoken.ExpiredJwtException;
 import io.micrometer.common.lang.NonNull;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -17,21 +26,47 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import org.springframework.web.servlet.HandlerExceptionResolver;
 
 import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
+    @Value("${security.jwt.principal-mode:database}")
+    private String principalMode;
     private final HandlerExceptionResolver handlerExceptionResolver;
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final SecurityVersionRegistry securityVersionRegistry;
+    private final TokenRevocationService tokenRevocationService;
+    private final Map<ValidationOutcome, Counter> validationCounters = new EnumMap<>(ValidationOutcome.class);
 
     public JwtAuthenticationFilter(
             JwtService jwtService,
             UserDetailsService userDetailsService,
-            HandlerExceptionResolver handlerExceptionResolver
+            VerifiedTokenCache verifiedTokenCache,
+            SecurityVersionRegistry securityVersionRegistry,
+            TokenRevocationService tokenRevocationService,
+            HandlerExceptionResolver handlerExceptionResolver,
+            MeterRegistry meterRegistry
     ) {
         this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.securityVersionRegistry = securityVersionRegistry;
+        this.tokenRevocationService = tokenRevocationService;
         this. handlerExceptionResolver = handlerExceptionResolver;
+        for (ValidationOutcome outcome : ValidationOutcome.values())
+        {
+            validationCounters.put(outcome, Counter.builder("jwt.validation")
+                    .tag("outcome", outcome.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+    }
+
+    private enum ValidationOutcome {
+        CACHE_HIT, VALID, EXPIRED, INVALID, REVOKED, STALE, DISABLED, REJECTED
     }
 
     @Override
@@ -51,22 +86,35 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         try {
             final String jwt = authHeader.substring(7);
-            final String userEmail = jwtService.extractUsername(jwt);
-
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
 
-            if (userEmail != null && authentication == null)
+            if (authentication == null)
             {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
-
-                if(jwtService.isTokenValid(jwt, userDetails)) {
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails,
-                            null,
-                            userDetails.getAuthorities()
-                    );
-                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
+                VerifiedTokenCache.CachedAuthentication cached = verifiedTokenCache.get(jwt);
+                if (cached != null)
+                {
+                    if (tokenRevocationService.isRevoked(cached.token()))
+                    {
+                        count(ValidationOutcome.REVOKED);
+                    } else if (!isCurrentVersion(cached.token()))
+                    {
+                        count(ValidationOutcome.STALE);
+                    } else
+                    {
+                        count(ValidationOutcome.CACHE_HIT);
+                        authenticate(request, cached.userDetails());
+                    }
+                } else
+                {
+                    final VerifiedToken token = verify(jwt);
+                    final UserDetails userDetails = resolvePrincipal(token);
+
+                    if (userDetails != null)
+                    {
+                        count(ValidationOutcome.VALID);
+                        verifiedTokenCache.put(jwt, token, userDetails);
+                        authenticate(request, userDetails);
+                    }
                 }
             }
 
@@ -77,4 +125,75 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             handlerExceptionResolver.resolveException(request, response, null, exception);
         }
     }
+
+    private VerifiedToken verify(String jwt)
+    {
+        try {
+            return jwtService.verify(jwt);
+        } catch (RuntimeException e) {
+            count(e.getCause() instanceof ExpiredJwtException ? ValidationOutcome.EXPIRED : ValidationOutcome.INVALID);
+            throw e;
+        }
+    }
+
+    private UserDetails resolvePrincipal(VerifiedToken token)
+    {
+        if (token.subject() == null || token.isPasswordReset())
+        {
+            return reject(ValidationOutcome.REJECTED);
+        }
+        if (tokenRevocationService.isRevoked(token))
+        {
+            return reject(ValidationOutcome.REVOKED);
+        }
+
+        if ("token".equalsIgnoreCase(principalMode))
+        {
+            if (!token.hasPrincipalClaims() || token.isExpired())
+            {
+                return reject(ValidationOutcome.REJECTED);
+            }
+            if (!token.enabled())
+            {
+                return reject(ValidationOutcome.DISABLED);
+            }
+            if (!isCurrentVersion(token))
+            {
+                return reject(ValidationOutcome.STALE);
+            }
+            return new TokenPrincipal(token.userId(), token.email(), token.username(), token.enabled());
+        }
+
+        final String userEmail = token.email() != null ? token.email() : token.subject();
+        UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+        return jwtService.isTokenValid(token, userDetails) ? userDetails : reject(ValidationOutcome.STALE);
+    }
+
+    // Picks up password resets made on other instances, which cannot evict this instance's verified-token cache
+    private boolean isCurrentVersion(VerifiedToken token)
+    {
+        return token.userId() == null || securityVersionRegistry.isCurrent(token.userId(), token.securityVersion());
+    }
+
+    private UserDetails reject(ValidationOutcome outcome)
+    {
+        count(outcome);
+        return null;
+    }
+
+    private void count(ValidationOutcome outcome)
+    {
+        validationCounters.get(outcome).increment();
+    }
+
+    private void authenticate(HttpServletRequest request, UserDetails userDetails)
+    {
+        UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                userDetails,
+                null,
+                userDetails.getAuthorities()
+        );
+        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(authToken);
+    }
 }
@@ -0,0 +1,90 @@
+package SocialTalk.Auth_Service.Config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets at most {@code eventsPerSecond} INFO and DEBUG events per second through for every logger under one of the
+ * configured prefixes and drops the rest. WARN and ERROR events are never sampled.
+ */
+public class LogSamplingTurboFilter extends TurboFilter {
+    private final List<String> loggerPrefixes = new ArrayList<>();
+    private final ConcurrentHashMap<String, Window> windows = new ConcurrentHashMap<>();
+    private final AtomicLong dropped = new AtomicLong();
+    private int eventsPerSecond = 100;
+
+    public void addLogger(String prefix)
+    {
+        loggerPrefixes.add(prefix);
+    }
+
+    public void setEventsPerSecond(int eventsPerSecond)
+    {
+        this.eventsPerSecond = eventsPerSecond;
+    }
+
+    public long getDropped()
+    {
+        return dropped.get();
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t)
+    {
+        // isDebugEnabled() style checks pass a null format and must not use up the budget
+        if (!isStarted() || format == null || level.isGreaterOrEqual(Level.WARN) || !level.isGreaterOrEqual(logger.getEffectiveLevel()))
+        {
+            return FilterReply.NEUTRAL;
+        }
+        String name = logger.getName();
+        if (!isSampled(name))
+        {
+            return FilterReply.NEUTRAL;
+        }
+        Window window = windows.computeIfAbsent(name, key -> new Window());
+        if (window.tryAcquire(System.nanoTime(), eventsPerSecond))
+        {
+            return FilterReply.NEUTRAL;
+        }
+        dropped.incrementAndGet();
+        return FilterReply.DENY;
+    }
+
+    private boolean isSampled(String name)
+    {
+        for (String prefix : loggerPrefixes)
+        {
+            if (name.startsWith(prefix))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Window {
+        private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+        private final AtomicLong start = new AtomicLong(System.nanoTime());
+        private final AtomicLong count = new AtomicLong();
+
+        private boolean tryAcquire(long now, int limit)
+        {
+            long windowStart = start.get();
+            if (now - windowStart >= WINDOW_NANOS && start.compareAndSet(windowStart, now))
+            {
+                count.set(0);
+            }
+            return count.incrementAndGet() <= limit;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package SocialTalk.Auth_Service.Config;
+
+import SocialTalk.Auth_Service.Service.TokenDigest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.config.Customizer;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+import org.springframework.security.web.SecurityFilterChain;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Endpoints meant for other services rather than users, authenticated with HTTP Basic client credentials. A client
+ * without a configured secret does not exist, so its endpoints reject every request.
+ */
+@Configuration
+public class ServiceClientSecurityConfiguration {
+    public static final String INTROSPECTION_ROLE = "INTROSPECTION";
+    public static final String METRICS_ROLE = "METRICS";
+
+    @Value("${security.clients.introspection.id:}")
+    private String introspectionClientId;
+    @Value("${security.clients.introspection.secret:}")
+    private String introspectionClientSecret;
+    @Value("${security.clients.metrics.id:}")
+    private String metricsClientId;
+    @Value("${security.clients.metrics.secret:}")
+    private String metricsClientSecret;
+
+    @Bean
+    @Order(1)
+    public SecurityFilterChain serviceClientFilterChain(HttpSecurity http) throws Exception
+    {
+        http
+                .securityMatcher("/auth/introspect", "/actuator/prometheus", "/actuator/metrics/**")
+                .csrf(csrf -> csrf.disable())
+                .authorizeHttpRequests(authorize -> authorize
+                        .requestMatchers("/auth/introspect").hasRole(INTROSPECTION_ROLE)
+                        .requestMatchers("/actuator/prometheus", "/actuator/metrics/**").hasRole(METRICS_ROLE)
+                        .anyRequest().denyAll()
+                )
+                .httpBasic(Customizer.withDefaults())
+                .sessionManagement(session -> session
+                        .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .authenticationManager(new ProviderManager(serviceClientAuthenticationProvider()));
+
+        return http.build();
+    }
+
+    private DaoAuthenticationProvider serviceClientAuthenticationProvider()
+    {
+        PasswordEncoder encoder = new ClientSecretEncoder();
+        List<UserDetails> clients = new ArrayList<>();
+        addClient(clients, encoder, introspectionClientId, introspectionClientSecret, INTROSPECTION_ROLE);
+        addClient(clients, encoder, metricsClientId, metricsClientSecret, METRICS_ROLE);
+
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+        provider.setUserDetailsService(new InMemoryUserDetailsManager(clients));
+        provider.setPasswordEncoder(encoder);
+        return provider;
+    }
+
+    private static void addClient(List<UserDetails> clients, PasswordEncoder encoder, String id, String secret, String role)
+    {
+        if (id == null || id.isBlank() || secret == null || secret.isBlank())
+        {
+            return;
+        }
+        clients.add(User.withUsername(id)
+                .password(encoder.encode(secret))
+                .roles(role)
+                .build());
+    }
+
+    // Client secrets are long random values, so a SHA-256 digest is enough and keeps BCrypt off every service call
+    private static final class ClientSecretEncoder implements PasswordEncoder {
+        @Override
+        public String encode(CharSequence rawPassword)
+        {
+            return TokenDigest.sha256(rawPassword.toString());
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword)
+        {
+            return rawPassword != null && encodedPassword != null && MessageDigest.isEqual(
+                    encode(rawPassword).getBytes(StandardCharsets.US_ASCII),
+                    encodedPassword.getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+}
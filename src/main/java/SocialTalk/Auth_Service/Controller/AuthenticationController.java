@@ -1,13 +1,22 @@
 package SocialTalk.Auth_Service.Controller;
 
+import SocialTalk.Auth_Service.Config.PasswordHashingOverloadedException;
 import SocialTalk.Auth_Service.DataTransferObject.LoginUserDTO;
+import SocialTalk.Auth_Service.DataTransferObject.RefreshTokenDTO;
 import SocialTalk.Auth_Service.DataTransferObject.RegisterUserDTO;
 import SocialTalk.Auth_Service.Model.User;
 import SocialTalk.Auth_Service.Responses.LoginResponse;
 import SocialTalk.Auth_Service.Service.AuthenticationService;
+import SocialTalk.Auth_Service.Service.InvalidRefreshTokenException;
+import SocialTalk.Auth_Service.Service.RateLimiter;
+import SocialTalk.Auth_Service.Service.RefreshTokenService;
+import SocialTalk.Auth_Service.Service.TokenRevocationService;
+import SocialTalk.Auth_Service.Service.VerifiedToken;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -24,14 +33,26 @@ import java.util.Map;
 @RestController
 @Tag(name = "Authentication", description = "Auth Service API")
 public class AuthenticationController {
+    private static final Logger logger = LoggerFactory.getLogger(AuthenticationController.class);
     private final JwtService jwtService;
     @Autowired
 
     private final AuthenticationService authenticationService;
-
-    public AuthenticationController(JwtService jwtService, AuthenticationService authenticationService) {
+    private final RateLimiter rateLimiter;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationService tokenRevocationService;
+
+    public AuthenticationController(
+            JwtService jwtService,
+            AuthenticationService authenticationService,
+            RateLimiter rateLimiter,
+            RefreshTokenService refreshTokenService,
+            TokenRevocationService tokenRevocationService) {
         this.jwtService = jwtService;
         this.authenticationService = authenticationService;
+        this.rateLimiter = rateLimiter;
+        this.refreshTokenService = refreshTokenService;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     @PostMapping("/signup")
@@ -45,6 +66,8 @@ public class AuthenticationController {
             return ResponseEntity.ok(registeredUser);
         } catch (AuthenticationService.EmailAlreadyRegisteredException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (PasswordHashingOverloadedException e) {
+            throw e;
         } catch (RuntimeException e){
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An unexpected error occurred");
         }
@@ -56,20 +79,76 @@ public class AuthenticationController {
             summary = "Authenticate user",
             description = "Authenticates user credentials and returns JWT token with expiration time"
     )
-    public ResponseEntity<LoginResponse> authenticate(@RequestBody LoginUserDTO loginUserDTO){
+    public ResponseEntity<LoginResponse> authenticate(@RequestBody LoginUserDTO loginUserDTO, HttpServletRequest request){
+        rateLimiter.acquire(RateLimiter.LOGIN, request.getRemoteAddr(), loginUserDTO.getEmail());
         User authenticatedUser = authenticationService.authenticate(loginUserDTO);
-        Long userId = authenticatedUser.getId();
-        String jwtToken = jwtService.generateToken(authenticatedUser, userId);
-        LoginResponse loginResponse = new LoginResponse(jwtToken, jwtService.getExpirationTime());
+        String jwtToken = jwtService.generateToken(authenticatedUser);
+        RefreshTokenService.IssuedRefreshToken refreshToken = refreshTokenService.issue(authenticatedUser);
+        LoginResponse loginResponse = new LoginResponse(
+                jwtToken,
+                jwtService.getExpirationTime(),
+                refreshToken.token(),
+                refreshToken.expiresIn());
         return ResponseEntity.ok(loginResponse);
     }
 
+    @PostMapping("/refresh")
+    @Operation(
+            summary = "Refresh access token",
+            description = "Exchanges a refresh token for a new JWT token and a new refresh token. "
+                    + "Every refresh token can be used once, reusing one revokes the whole session"
+    )
+    public ResponseEntity<?> refresh(@RequestBody RefreshTokenDTO refreshTokenDTO) {
+        if (refreshTokenDTO.getRefreshToken() == null || refreshTokenDTO.getRefreshToken().isBlank()) {
+            return ResponseEntity.badRequest().body("Refresh token is required");
+        }
+        try {
+            RefreshTokenService.Rotation rotation = refreshTokenService.rotate(refreshTokenDTO.getRefreshToken());
+            String jwtToken = jwtService.generateToken(rotation.user());
+            LoginResponse loginResponse = new LoginResponse(
+                    jwtToken,
+                    jwtService.getExpirationTime(),
+                    rotation.refreshToken().token(),
+                    rotation.refreshToken().expiresIn());
+            return ResponseEntity.ok(loginResponse);
+        } catch (InvalidRefreshTokenException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/logout")
+    @Operation(
+            summary = "Log out",
+            description = "Revokes the JWT token from the Authorization header before it expires. "
+                    + "When a refresh token of the same user is sent in the body its whole session is revoked as well"
+    )
+    public ResponseEntity<?> logout(
+            @RequestHeader(value = "Authorization", required = false) String authHeader,
+            @RequestBody(required = false) RefreshTokenDTO refreshTokenDTO)
+    {
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return ResponseEntity.badRequest().body("Authorization token is required");
+        }
+        VerifiedToken token;
+        try {
+            token = jwtService.verify(authHeader.substring(7));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
+        }
+        tokenRevocationService.revoke(token);
+        if (refreshTokenDTO != null && refreshTokenDTO.getRefreshToken() != null && !refreshTokenDTO.getRefreshToken().isBlank()) {
+            refreshTokenService.revoke(refreshTokenDTO.getRefreshToken(), token.userId());
+        }
+        return ResponseEntity.ok("Logged out successfully");
+    }
+
     @PostMapping("/verify")
     @Operation(
             summary = "Verify user account",
             description = "Verifies user account using the verification code"
     )
-    public ResponseEntity<?> verifyUser(@RequestBody VerifyUserDTO verifyUserDTO) {
+    public ResponseEntity<?> verifyUser(@RequestBody VerifyUserDTO verifyUserDTO, HttpServletRequest request) {
+        rateLimiter.acquire(RateLimiter.VERIFY, request.getRemoteAddr(), verifyUserDTO.getEmail());
         try {
             authenticationService.verifyUser(verifyUserDTO);
             return ResponseEntity.ok("Account verified successfully");
@@ -83,7 +162,8 @@ public class AuthenticationController {
             summary = "Resend verification code",
             description = "Resends verification code to the specified email address"
     )
-    public ResponseEntity<?> resendVerificationCode(@RequestParam String email) {
+    public ResponseEntity<?> resendVerificationCode(@RequestParam String email, HttpServletRequest request) {
+        rateLimiter.acquire(RateLimiter.RESEND, request.getRemoteAddr(), email);
         try {
             authenticationService.resendVerificationCode(email);
             return ResponseEntity.ok("Verification code sent");
@@ -97,8 +177,12 @@ public class AuthenticationController {
             summary = "Request password reset",
             description = "Sends a password reset link to the provided email address"
     )
-    public ResponseEntity<?> resetPasswordRequest(@RequestParam String email, HttpServletResponse response)
+    public ResponseEntity<?> resetPasswordRequest(
+            @RequestParam String email,
+            HttpServletRequest request,
+            HttpServletResponse response)
     {
+        rateLimiter.acquire(RateLimiter.RESET, request.getRemoteAddr(), email);
         try{
             authenticationService.sendResetPassword(email, response);
             return ResponseEntity.ok("Reset password link sent to your email");
@@ -127,8 +211,10 @@ public class AuthenticationController {
         try {
             authenticationService.resetPassword(resetToken, newPassword);
             return ResponseEntity.ok("Password has been reset successfully");
+        } catch (PasswordHashingOverloadedException e) {
+            throw e;
         } catch (RuntimeException e) {
-            System.err.println("Error resetting password: " + e.getMessage());
+            logger.debug("Error resetting password: {}", e.getMessage());
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
@@ -141,7 +227,7 @@ public class AuthenticationController {
                 }
             }
         }
-        System.out.println("No resetToken cookie found");
+        logger.debug("No resetToken cookie found");
         return null;
     }
 
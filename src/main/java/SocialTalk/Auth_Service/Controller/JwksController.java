@@ -0,0 +1,61 @@
+package SocialTalk.Auth_Service.Controller;
+
+import SocialTalk.Auth_Service.Service.JwtKeyRing;
+import SocialTalk.Auth_Service.Service.TokenDigest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Duration;
+import java.util.Map;
+
+@RestController
+@Tag(name = "Keys", description = "Public keys for verifying JWT tokens")
+public class JwksController {
+    @Value("${security.jwt.jwks.max-age:PT15M}")
+    private Duration maxAge;
+
+    private final JwtKeyRing keyRing;
+    private final ObjectMapper objectMapper;
+    private String jwks;
+    private String etag;
+
+    public JwksController(JwtKeyRing keyRing, ObjectMapper objectMapper)
+    {
+        this.keyRing = keyRing;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    void init() throws JsonProcessingException
+    {
+        this.jwks = objectMapper.writeValueAsString(Map.of("keys", keyRing.jwks()));
+        this.etag = "\"" + TokenDigest.sha256(jwks) + "\"";
+    }
+
+    @GetMapping(value = "/.well-known/jwks.json", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(
+            summary = "JSON Web Key Set",
+            description = "Public keys used to sign JWT tokens, selected by the kid header. Empty when tokens are signed with a shared secret"
+    )
+    public ResponseEntity<String> jwks(WebRequest request)
+    {
+        if (request.checkNotModified(etag))
+        {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(maxAge).cachePublic())
+                .eTag(etag)
+                .body(jwks);
+    }
+}
@@ -0,0 +1,39 @@
+package SocialTalk.Auth_Service.Controller;
+
+import SocialTalk.Auth_Service.DataTransferObject.IntrospectionRequestDTO;
+import SocialTalk.Auth_Service.Service.TokenIntrospectionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RequestMapping("/auth")
+@RestController
+@Tag(name = "Authentication", description = "Auth Service API")
+public class TokenIntrospectionController {
+    private final TokenIntrospectionService tokenIntrospectionService;
+
+    public TokenIntrospectionController(TokenIntrospectionService tokenIntrospectionService) {
+        this.tokenIntrospectionService = tokenIntrospectionService;
+    }
+
+    @PostMapping("/introspect")
+    @Operation(
+            summary = "Introspect tokens",
+            description = "Checks several JWT tokens in one call. Results are returned in the order of the requested tokens, "
+                    + "active tokens include their claims"
+    )
+    public ResponseEntity<?> introspect(@RequestBody IntrospectionRequestDTO request) {
+        if (request.getTokens() == null) {
+            return ResponseEntity.badRequest().body("Tokens are required");
+        }
+        try {
+            return ResponseEntity.ok(tokenIntrospectionService.introspect(request.getTokens()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
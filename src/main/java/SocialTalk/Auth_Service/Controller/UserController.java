@@ -1,26 +1,39 @@
 package SocialTalk.Auth_Service.Controller;
 
+import SocialTalk.Auth_Service.DataTransferObject.UserBatchRequestDTO;
+import SocialTalk.Auth_Service.Model.TokenPrincipal;
 import SocialTalk.Auth_Service.Model.User;
+import SocialTalk.Auth_Service.Responses.UserBatchResponse;
+import SocialTalk.Auth_Service.Responses.UserSummary;
 import SocialTalk.Auth_Service.Service.UserService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.util.Optional;
 import io.swagger.v3.oas.annotations.Operation;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 
 @RequestMapping("/users")
 @RestController
 public class UserController {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
     private final UserService userService;
-    public UserController(UserService userService) {
+    private final ObjectMapper objectMapper;
+    public UserController(UserService userService, ObjectMapper objectMapper) {
         this.userService = userService;
+        this.objectMapper = objectMapper;
     }
     private static final Logger logger = LoggerFactory.getLogger(UserController.class);
 
@@ -29,15 +42,18 @@ public class UserController {
             summary = "Get authenticated user",
             description = "Retrieves the currently authenticated user's information"
     )
-    public ResponseEntity<User> authenticatedUser() {
+    public ResponseEntity<UserSummary> authenticatedUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         Object principal = authentication.getPrincipal();
 
         if (principal instanceof User currentUser) {
-            logger.info("Current user: {}", currentUser);
-            return ResponseEntity.ok(currentUser);
+            logger.atDebug().setMessage("Current user").addKeyValue("userId", currentUser::getId).log();
+            return ResponseEntity.ok(UserSummary.of(currentUser));
+        } else if (principal instanceof TokenPrincipal tokenPrincipal) {
+            logger.atDebug().setMessage("Current user").addKeyValue("userId", tokenPrincipal::id).log();
+            return ResponseEntity.ok(UserSummary.of(tokenPrincipal));
         } else {
-            logger.info("Principal is not of type User: {}", principal);
+            logger.atInfo().setMessage("Principal is not of type User: {}").addArgument(() -> principal.getClass().getName()).log();
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
     }
@@ -47,39 +63,85 @@ public class UserController {
             summary = "Find user by ID",
             description = "Retrieves a specific user's information based on their ID"
     )
-    public ResponseEntity<User> getUserById(@PathVariable Long id) {
+    public ResponseEntity<UserSummary> getUserById(@PathVariable Long id) {
         try {
-            logger.info("Controller: Received request for user ID: {}", id);
-            Optional<User> user = userService.getUser(id);
+            Optional<UserSummary> user = userService.getUser(id);
 
             if (user.isPresent()) {
-                logger.info("Controller: Found user: {}", user.get());
                 return ResponseEntity.ok(user.get());
             } else {
-                logger.info("Controller: No user found with ID: {}", id);
+                logger.atDebug().setMessage("Controller: No user found").addKeyValue("userId", id).log();
                 return ResponseEntity.notFound().build();
             }
         } catch (Exception e) {
-            logger.error("Controller: Error: {}", e.getMessage());
+            logger.error("Controller: Error fetching user {}", id, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    @PostMapping("/batch")
+    @Operation(
+            summary = "Find users by IDs",
+            description = "Retrieves several users in one call. Users are returned in the order of the requested IDs "
+                    + "and IDs that do not exist are listed under 'missing'"
+    )
+    public ResponseEntity<?> getUsersByIds(@RequestBody UserBatchRequestDTO request) {
+        if (request.getIds() == null) {
+            return ResponseEntity.badRequest().body("User IDs are required");
+        }
+        try {
+            UserBatchResponse response = userService.getUsers(request.getIds());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @GetMapping("/all")
     @Operation(
             summary = "Get all users",
-            description = "Retrieves a list of all registered users in the system"
+            description = "Retrieves registered users ordered by ID, one page at a time. Pass the value of the "
+                    + "X-Next-Cursor response header as 'after' to fetch the next page, or set 'stream' to receive "
+                    + "every user in a single streamed response"
     )
-    public ResponseEntity<List<User>> allUsers() {
-        List <User> users = userService.allUsers();
+    public ResponseEntity<?> allUsers(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean stream) {
+        int pageSize = userService.pageSize(limit);
 
-        for (User item : users) {
-            logger.info("User: {}", item);
+        if (stream) {
+            StreamingResponseBody body = outputStream -> streamUsers(outputStream, after, pageSize);
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
         }
 
-        logger.info("All users: {}", users);
+        List<UserSummary> users = userService.usersAfter(after, pageSize);
+        logger.debug("Returning {} users after ID {}", users.size(), after);
 
-        return ResponseEntity.ok(users);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (users.size() == pageSize) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(users.get(users.size() - 1).id()));
+        }
+        return response.body(users);
+    }
+
+    private void streamUsers(OutputStream outputStream, Long after, int pageSize) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.writeStartArray();
+            Long cursor = after;
+            List<UserSummary> page;
+            do {
+                page = userService.usersAfter(cursor, pageSize);
+                for (UserSummary user : page) {
+                    objectMapper.writeValue(generator, user);
+                }
+                generator.flush();
+                if (!page.isEmpty()) {
+                    cursor = page.get(page.size() - 1).id();
+                }
+            } while (page.size() == pageSize);
+            generator.writeEndArray();
+        }
     }
 
 }
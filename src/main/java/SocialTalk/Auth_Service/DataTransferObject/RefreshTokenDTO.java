@@ -0,0 +1,10 @@
+package SocialTalk.Auth_Service.DataTransferObject;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class RefreshTokenDTO {
+    private String refreshToken;
+}
@@ -0,0 +1,12 @@
+package SocialTalk.Auth_Service.DataTransferObject;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class UserBatchRequestDTO {
+    private List<Long> ids;
+}
@@ -0,0 +1,65 @@
+package SocialTalk.Auth_Service.Model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "email_outbox", indexes = {
+        @Index(name = "idx_email_outbox_status_next_attempt", columnList = "status, next_attempt_at"),
+        @Index(name = "idx_email_outbox_expires_at", columnList = "expires_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class EmailOutboxMessage {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(nullable = false)
+    private String recipient;
+    @Column(nullable = false)
+    private String subject;
+    @Column(name = "html_body", columnDefinition = "TEXT")
+    private String htmlBody;
+    @Column(name = "text_body", columnDefinition = "TEXT")
+    private String textBody;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private EmailOutboxStatus status;
+    private int attempts;
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    // After this the content is useless, a verification code has expired, and the row is never sent
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    public EmailOutboxMessage(String recipient, String subject, String htmlBody, String textBody, LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+        this.recipient = recipient;
+        this.subject = subject;
+        this.htmlBody = htmlBody;
+        this.textBody = textBody;
+        this.status = EmailOutboxStatus.PENDING;
+        this.createdAt = LocalDateTime.now();
+        this.nextAttemptAt = this.createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "EmailOutboxMessage{" +
+                "id=" + id +
+                ", status=" + status +
+                ", attempts=" + attempts +
+                '}';
+    }
+}
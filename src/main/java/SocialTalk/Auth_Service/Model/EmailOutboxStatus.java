@@ -0,0 +1,9 @@
+package SocialTalk.Auth_Service.Model;
+
+public enum EmailOutboxStatus {
+    PENDING,
+    SENDING,
+    SENT,
+    DEAD,
+    EXPIRED
+}
@@ -0,0 +1,5 @@
+package SocialTalk.Auth_Service.Model;
+
+import java.time.LocalDateTime;
+
+public record SecurityVersionChange(Long userId, int securityVersion, LocalDateTime changedAt) {}
@@ -1,5 +1,6 @@
 package SocialTalk.Auth_Service.Model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.persistence.*;
 import lombok.Getter;
@@ -13,14 +14,20 @@ import java.util.Collection;
 import java.util.List;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        @Index(name = "idx_users_enabled_created_at", columnList = "enabled, created_at"),
+        @Index(name = "idx_users_security_version_changed_at", columnList = "security_version_changed_at")
+})
 @Getter
 @Setter
 @NoArgsConstructor
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class User implements UserDetails {
+    // Same users_seq table and block of 50 ids as the GenerationType.AUTO default, spelled out so the block size is
+    // visible. hibernate.id.optimizer.pooled.preferred picks pooled-lo for it.
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
     @Column(unique = true, nullable = false)
     private String username;
@@ -29,15 +36,20 @@ public class User implements UserDetails {
     @Column(nullable = false)
     private String password;
     private boolean enabled;
-    @Column(name = "verification_code", unique = true, nullable = true)
-    private String verificationCode;
-    @Column(name = "verification_expiration", columnDefinition = "TIMESTAMP  DEFAULT CURRENT_TIME")
-    private LocalDateTime verificationCodeExpiredAt;
+    @JsonIgnore
+    @Column(name = "security_version", nullable = false)
+    private int securityVersion;
+    @JsonIgnore
+    @Column(name = "security_version_changed_at")
+    private LocalDateTime securityVersionChangedAt;
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
 
     public User(String username, String email, String password) {
         this.username = username;
         this.email = email;
         this.password = password;
+        this.createdAt = LocalDateTime.now();
     }
 
     @Override
@@ -0,0 +1,39 @@
+package SocialTalk.Auth_Service.Model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "verification_codes",
+        uniqueConstraints = @UniqueConstraint(name = "uk_verification_codes_user_purpose", columnNames = {"user_id", "purpose"}),
+        indexes = @Index(name = "idx_verification_codes_expires_at", columnList = "expires_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class VerificationCode {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private VerificationPurpose purpose;
+    @Column(name = "code_hash", nullable = false, length = 64)
+    private String codeHash;
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+    @Column(nullable = false)
+    private int attempts;
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public VerificationCode(Long userId, VerificationPurpose purpose) {
+        this.userId = userId;
+        this.purpose = purpose;
+    }
+}
@@ -0,0 +1,5 @@
+package SocialTalk.Auth_Service.Model;
+
+public enum VerificationPurpose {
+    ACCOUNT_VERIFICATION
+}
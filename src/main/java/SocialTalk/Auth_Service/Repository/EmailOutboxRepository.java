@@ -0,0 +1,130 @@
+package SocialTalk.Auth_Service.Repository;
+
+import SocialTalk.Auth_Service.Model.EmailOutboxMessage;
+import SocialTalk.Auth_Service.Model.EmailOutboxStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends CrudRepository<EmailOutboxMessage, Long> {
+
+    @Query("select m.id from EmailOutboxMessage m " +
+            "where m.status in :statuses and m.nextAttemptAt <= :now " +
+            "order by m.nextAttemptAt")
+    List<Long> findDueIds(
+            @Param("statuses") Collection<EmailOutboxStatus> statuses,
+            @Param("now") LocalDateTime now,
+            Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("update EmailOutboxMessage m " +
+            "set m.status = :claimedStatus, " +
+            "m.nextAttemptAt = :leaseUntil, m.attempts = m.attempts + 1 " +
+            "where m.id = :id and m.status in :statuses and m.nextAttemptAt <= :now")
+    int claim(
+            @Param("id") Long id,
+            @Param("statuses") Collection<EmailOutboxStatus> statuses,
+            @Param("now") LocalDateTime now,
+            @Param("leaseUntil") LocalDateTime leaseUntil,
+            @Param("claimedStatus") EmailOutboxStatus claimedStatus);
+
+    // The outcome of a delivery is only recorded while the claim that started it still holds. Once the lease ran out
+    // the row may have been claimed again, and the newer claim owns it. A finished row keeps no body, verification
+    // emails carry the code in plain text, and its next_attempt_at is when it finished.
+    @Transactional
+    @Modifying
+    @Query("update EmailOutboxMessage m " +
+            "set m.status = :sentStatus, m.sentAt = :sentAt, m.nextAttemptAt = :sentAt, m.lastError = null, " +
+            "m.htmlBody = null, m.textBody = null " +
+            "where m.id = :id and m.status = :claimedStatus and m.nextAttemptAt = :leaseUntil")
+    int markSent(
+            @Param("id") Long id,
+            @Param("claimedStatus") EmailOutboxStatus claimedStatus,
+            @Param("leaseUntil") LocalDateTime leaseUntil,
+            @Param("sentStatus") EmailOutboxStatus sentStatus,
+            @Param("sentAt") LocalDateTime sentAt);
+
+    @Transactional
+    @Modifying
+    @Query("update EmailOutboxMessage m " +
+            "set m.status = :retryStatus, m.nextAttemptAt = :nextAttemptAt, m.lastError = :lastError " +
+            "where m.id = :id and m.status = :claimedStatus and m.nextAttemptAt = :leaseUntil")
+    int markRetry(
+            @Param("id") Long id,
+            @Param("claimedStatus") EmailOutboxStatus claimedStatus,
+            @Param("leaseUntil") LocalDateTime leaseUntil,
+            @Param("retryStatus") EmailOutboxStatus retryStatus,
+            @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+            @Param("lastError") String lastError);
+
+    @Transactional
+    @Modifying
+    @Query("update EmailOutboxMessage m " +
+            "set m.status = :deadStatus, m.nextAttemptAt = :now, m.lastError = :lastError, " +
+            "m.htmlBody = null, m.textBody = null " +
+            "where m.id = :id and m.status = :claimedStatus and m.nextAttemptAt = :leaseUntil")
+    int markDead(
+            @Param("id") Long id,
+            @Param("claimedStatus") EmailOutboxStatus claimedStatus,
+            @Param("leaseUntil") LocalDateTime leaseUntil,
+            @Param("deadStatus") EmailOutboxStatus deadStatus,
+            @Param("now") LocalDateTime now,
+            @Param("lastError") String lastError);
+
+    @Transactional
+    @Modifying
+    @Query("update EmailOutboxMessage m " +
+            "set m.status = :expiredStatus, m.nextAttemptAt = :now, " +
+            "m.htmlBody = null, m.textBody = null " +
+            "where m.id = :id and m.status = :claimedStatus and m.nextAttemptAt = :leaseUntil")
+    int markExpired(
+            @Param("id") Long id,
+            @Param("claimedStatus") EmailOutboxStatus claimedStatus,
+            @Param("leaseUntil") LocalDateTime leaseUntil,
+            @Param("expiredStatus") EmailOutboxStatus expiredStatus,
+            @Param("now") LocalDateTime now);
+
+    // Rows waiting out a backoff are not claimed before their content expires, so they are cleared here instead
+    @Modifying
+    @Query("update EmailOutboxMessage m " +
+            "set m.status = :expiredStatus, m.nextAttemptAt = :now, " +
+            "m.htmlBody = null, m.textBody = null " +
+            "where m.status = :pendingStatus and m.expiresAt <= :now")
+    int expirePending(
+            @Param("pendingStatus") EmailOutboxStatus pendingStatus,
+            @Param("expiredStatus") EmailOutboxStatus expiredStatus,
+            @Param("now") LocalDateTime now);
+
+    // Undoes claim() for messages that were never handed to a worker, without counting the attempt
+    @Transactional
+    @Modifying
+    @Query("update EmailOutboxMessage m " +
+            "set m.status = :releasedStatus, " +
+            "m.nextAttemptAt = :now, m.attempts = m.attempts - 1 " +
+            "where m.id in :ids and m.status = :claimedStatus")
+    int release(
+            @Param("ids") Collection<Long> ids,
+            @Param("claimedStatus") EmailOutboxStatus claimedStatus,
+            @Param("releasedStatus") EmailOutboxStatus releasedStatus,
+            @Param("now") LocalDateTime now);
+
+    @Query("select m.id from EmailOutboxMessage m where m.status in :statuses and m.nextAttemptAt < :cutoff")
+    List<Long> findFinishedIdsBefore(
+            @Param("statuses") Collection<EmailOutboxStatus> statuses,
+            @Param("cutoff") LocalDateTime cutoff,
+            Pageable pageable);
+
+    @Modifying
+    @Query("delete from EmailOutboxMessage m where m.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+}
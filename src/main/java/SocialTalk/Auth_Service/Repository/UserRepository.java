@@ -1,15 +1,46 @@
 package SocialTalk.Auth_Service.Repository;
 
+import SocialTalk.Auth_Service.Model.SecurityVersionChange;
 import SocialTalk.Auth_Service.Model.User;
+import SocialTalk.Auth_Service.Responses.UserSummary;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends CrudRepository<User, Long> {
     Optional<User> findByEmail(String email);
-    Optional<User> findByVerificationCode(String verificationCode);
 
     boolean existsByEmail(String email);
+
+    @Query("select new SocialTalk.Auth_Service.Model.SecurityVersionChange(u.id, u.securityVersion, u.securityVersionChangedAt) " +
+            "from User u where u.securityVersionChangedAt > :since")
+    List<SecurityVersionChange> findSecurityVersionChangesSince(@Param("since") LocalDateTime since);
+
+    @Query("select u.id from User u where u.enabled = false and u.createdAt < :cutoff order by u.createdAt")
+    List<Long> findUnverifiedIdsCreatedBefore(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    @Modifying
+    @Query("delete from User u where u.id in :ids and u.enabled = false")
+    int deleteUnverifiedByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select new SocialTalk.Auth_Service.Responses.UserSummary(u.id, u.username, u.email, u.enabled) " +
+            "from User u where u.id = :id")
+    Optional<UserSummary> findSummaryById(@Param("id") Long id);
+
+    @Query("select new SocialTalk.Auth_Service.Responses.UserSummary(u.id, u.username, u.email, u.enabled) " +
+            "from User u where u.id > :after order by u.id")
+    List<UserSummary> findSummariesAfter(@Param("after") Long after, Pageable pageable);
+
+    @Query("select new SocialTalk.Auth_Service.Responses.UserSummary(u.id, u.username, u.email, u.enabled) " +
+            "from User u where u.id in :ids")
+    List<UserSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,46 @@
+package SocialTalk.Auth_Service.Repository;
+
+import SocialTalk.Auth_Service.Model.VerificationCode;
+import SocialTalk.Auth_Service.Model.VerificationPurpose;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface VerificationCodeRepository extends JpaRepository<VerificationCode, Long> {
+    Optional<VerificationCode> findByUserIdAndPurpose(Long userId, VerificationPurpose purpose);
+
+    // One statement against uk_verification_codes_user_purpose, so concurrent resends for the same user both succeed
+    // and the last one wins, instead of both missing a lookup and the second insert failing
+    @Modifying
+    @Query(value = "insert into verification_codes (user_id, purpose, code_hash, expires_at, attempts, created_at) " +
+            "values (:userId, :purpose, :codeHash, :expiresAt, 0, :createdAt) " +
+            "on duplicate key update code_hash = values(code_hash), expires_at = values(expires_at), " +
+            "attempts = 0, created_at = values(created_at)", nativeQuery = true)
+    int upsert(
+            @Param("userId") Long userId,
+            @Param("purpose") String purpose,
+            @Param("codeHash") String codeHash,
+            @Param("expiresAt") LocalDateTime expiresAt,
+            @Param("createdAt") LocalDateTime createdAt);
+
+    // Reserves one guess, the row lock makes concurrent checks of the same code take turns
+    @Modifying
+    @Query("update VerificationCode c set c.attempts = c.attempts + 1 where c.id = :id and c.attempts < :maxAttempts")
+    int reserveAttempt(@Param("id") Long id, @Param("maxAttempts") int maxAttempts);
+
+    @Query("select c.id from VerificationCode c where c.expiresAt < :now")
+    List<Long> findExpiredIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    @Modifying
+    @Query("delete from VerificationCode c where c.userId in :userIds")
+    int deleteByUserIdIn(@Param("userIds") Collection<Long> userIds);
+}
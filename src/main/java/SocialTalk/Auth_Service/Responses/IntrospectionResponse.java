@@ -0,0 +1,6 @@
+package SocialTalk.Auth_Service.Responses;
+
+import java.util.List;
+
+public record IntrospectionResponse(List<IntrospectionResult> results) {
+}
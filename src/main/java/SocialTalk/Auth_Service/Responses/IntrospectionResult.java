@@ -0,0 +1,29 @@
+package SocialTalk.Auth_Service.Responses;
+
+import SocialTalk.Auth_Service.Service.VerifiedToken;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record IntrospectionResult(
+        boolean active,
+        String sub,
+        Long userId,
+        String email,
+        String username,
+        String jti,
+        Long exp)
+{
+    public static final IntrospectionResult INACTIVE = new IntrospectionResult(false, null, null, null, null, null, null);
+
+    public static IntrospectionResult active(VerifiedToken token)
+    {
+        return new IntrospectionResult(
+                true,
+                token.subject(),
+                token.userId(),
+                token.email(),
+                token.username(),
+                token.tokenId(),
+                token.expiresAt().getEpochSecond());
+    }
+}
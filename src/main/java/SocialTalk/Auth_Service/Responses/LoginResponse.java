@@ -8,9 +8,18 @@ import lombok.Setter;
 public class LoginResponse {
     private String token;
     private long expiresIn;
+    private String refreshToken;
+    private long refreshExpiresIn;
 
     public LoginResponse(String token, long expiresIn) {
         this.token = token;
         this.expiresIn = expiresIn;
     }
+
+    public LoginResponse(String token, long expiresIn, String refreshToken, long refreshExpiresIn) {
+        this.token = token;
+        this.expiresIn = expiresIn;
+        this.refreshToken = refreshToken;
+        this.refreshExpiresIn = refreshExpiresIn;
+    }
 }
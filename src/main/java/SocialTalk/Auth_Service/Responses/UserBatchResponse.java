@@ -0,0 +1,6 @@
+package SocialTalk.Auth_Service.Responses;
+
+import java.util.List;
+
+public record UserBatchResponse(List<UserSummary> users, List<Long> missing) {
+}
@@ -0,0 +1,17 @@
+package SocialTalk.Auth_Service.Responses;
+
+import SocialTalk.Auth_Service.Model.TokenPrincipal;
+import SocialTalk.Auth_Service.Model.User;
+
+public record UserSummary(Long id, String username, String email, boolean enabled) {
+
+    public static UserSummary of(User user)
+    {
+        return new UserSummary(user.getId(), user.getUsername(), user.getEmail(), user.isEnabled());
+    }
+
+    public static UserSummary of(TokenPrincipal principal)
+    {
+        return new UserSummary(principal.id(), principal.username(), principal.email(), principal.enabled());
+    }
+}
@@ -1,34 +1,60 @@
 package SocialTalk.Auth_Service.Service;
 
+import SocialTalk.Auth_Service.Config.PasswordHashingOverloadedException;
 import SocialTalk.Auth_Service.DataTransferObject.LoginUserDTO;
 import SocialTalk.Auth_Service.DataTransferObject.VerifyUserDTO;
 import SocialTalk.Auth_Service.Model.User;
+import SocialTalk.Auth_Service.Model.VerificationPurpose;
 import SocialTalk.Auth_Service.DataTransferObject.RegisterUserDTO;
 import SocialTalk.Auth_Service.Repository.UserRepository;
-import jakarta.mail.MessagingException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Random;
 
 @Service
 public class AuthenticationService {
     @Value("${resetUrl}")
     private String resetUrl;
+    @Value("${security.verification-code.ttl:PT15M}")
+    private Duration verificationCodeTtl;
+    @Value("${security.verification-code.resend-ttl:PT1H}")
+    private Duration resendCodeTtl;
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final AuthenticationManager authenticationManager;
-    private final EmailService emailService;
+    private final EmailOutboxService emailOutboxService;
+    private final EmailTemplateService emailTemplateService;
     private final JwtService jwtService;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final SecurityVersionRegistry securityVersionRegistry;
+    private final CachedUserDetailsService userDetailsService;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationService tokenRevocationService;
+    private final VerificationCodeService verificationCodeService;
+    private final MeterRegistry meterRegistry;
+    private final Timer userLookupTimer;
+    private final Timer passwordCheckTimer;
+    private final Timer rehashTimer;
+    private final Map<LoginOutcome, Timer> loginTimers = new EnumMap<>(LoginOutcome.class);
 
     private static final Logger logger = LoggerFactory.getLogger(AuthenticationService.class);
 
@@ -36,16 +62,53 @@ public class AuthenticationService {
             UserRepository userRepository,
             PasswordEncoder passwordEncoder,
             AuthenticationManager authenticationManager,
-            EmailService emailService,
-            JwtService jwtService)
+            EmailOutboxService emailOutboxService,
+            EmailTemplateService emailTemplateService,
+            JwtService jwtService,
+            VerifiedTokenCache verifiedTokenCache,
+            SecurityVersionRegistry securityVersionRegistry,
+            CachedUserDetailsService userDetailsService,
+            RefreshTokenService refreshTokenService,
+            TokenRevocationService tokenRevocationService,
+            VerificationCodeService verificationCodeService,
+            MeterRegistry meterRegistry)
     {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.authenticationManager = authenticationManager;
-        this.emailService = emailService;
+        this.emailOutboxService = emailOutboxService;
+        this.emailTemplateService = emailTemplateService;
         this.jwtService = jwtService;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.securityVersionRegistry = securityVersionRegistry;
+        this.userDetailsService = userDetailsService;
+        this.refreshTokenService = refreshTokenService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.verificationCodeService = verificationCodeService;
+        this.meterRegistry = meterRegistry;
+        this.userLookupTimer = loginStageTimer("user_lookup");
+        this.passwordCheckTimer = loginStageTimer("password_check");
+        this.rehashTimer = loginStageTimer("rehash");
+        for (LoginOutcome outcome : LoginOutcome.values())
+        {
+            loginTimers.put(outcome, Timer.builder("auth.login")
+                    .tag("outcome", outcome.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+    }
+
+    private enum LoginOutcome {
+        SUCCESS, USER_NOT_FOUND, NOT_VERIFIED, BAD_CREDENTIALS, REJECTED, OVERLOADED, ERROR
+    }
+
+    private Timer loginStageTimer(String stage)
+    {
+        return Timer.builder("auth.login.stage")
+                .tag("stage", stage)
+                .register(meterRegistry);
     }
 
+    @Transactional
     public User signup(RegisterUserDTO input)
     {
         User user = new User(input.getUsername(), input.getEmail(), passwordEncoder.encode(input.getPassword()));
@@ -53,57 +116,115 @@ public class AuthenticationService {
         {
             throw new EmailAlreadyRegisteredException("Email is already registered");
         }
-        user.setVerificationCode(generateVerificationCode());
-        user.setVerificationCodeExpiredAt(LocalDateTime.now().plusMinutes(15));
         user.setEnabled(false);
-        sendVerificationEmail(user);
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        String code = verificationCodeService.issue(savedUser.getId(), VerificationPurpose.ACCOUNT_VERIFICATION, verificationCodeTtl);
+        sendVerificationEmail(savedUser, code, LocalDateTime.now().plus(verificationCodeTtl));
+        userDetailsService.evict(savedUser.getEmail());
+        return savedUser;
     }
 
     public User authenticate(LoginUserDTO input)
     {
-        User user = userRepository.findByEmail(input.getEmail())
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        if (!user.isEnabled())
+        Timer.Sample login = Timer.start(meterRegistry);
+        LoginOutcome outcome = LoginOutcome.ERROR;
+        try {
+            User user = userLookupTimer.record(() -> userRepository.findByEmail(input.getEmail()))
+                    .orElse(null);
+            if (user == null)
+            {
+                outcome = LoginOutcome.USER_NOT_FOUND;
+                throw new RuntimeException("User not found");
+            }
+            if (!user.isEnabled())
+            {
+                outcome = LoginOutcome.NOT_VERIFIED;
+                throw new RuntimeException("Account not verified. Please verify your account");
+            }
+
+            Timer.Sample passwordCheck = Timer.start(meterRegistry);
+            try {
+                authenticationManager.authenticate(
+                        new UsernamePasswordAuthenticationToken(
+                                input.getEmail(),
+                                input.getPassword()
+                        )
+                );
+            } catch (BadCredentialsException e) {
+                outcome = LoginOutcome.BAD_CREDENTIALS;
+                throw e;
+            } catch (AuthenticationException e) {
+                outcome = LoginOutcome.REJECTED;
+                throw e;
+            } finally {
+                passwordCheck.stop(passwordCheckTimer);
+            }
+
+            rehashTimer.record(() -> rehashIfNeeded(user, input.getPassword()));
+            outcome = LoginOutcome.SUCCESS;
+            return user;
+        } catch (PasswordHashingOverloadedException e) {
+            outcome = LoginOutcome.OVERLOADED;
+            throw e;
+        } finally {
+            login.stop(loginTimers.get(outcome));
+        }
+    }
+
+    private void rehashIfNeeded(User user, String rawPassword)
+    {
+        if (!passwordEncoder.upgradeEncoding(user.getPassword()))
         {
-            throw new RuntimeException("Account not verified. Please verify your account");
+            return;
+        }
+        try {
+            user.setPassword(passwordEncoder.encode(rawPassword));
+            userRepository.save(user);
+            userDetailsService.evict(user.getEmail());
+            logger.debug("Re-hashed password of user {} with the current parameters", user.getId());
+        } catch (PasswordHashingOverloadedException e) {
+            logger.debug("Skipping password re-hash of user {}, hashing pool is saturated", user.getId());
         }
-        authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                        input.getEmail(),
-                        input.getPassword()
-                )
-        );
-        return user;
     }
 
+    @Transactional(noRollbackFor = InvalidVerificationCodeException.class)
     public void verifyUser(VerifyUserDTO input)
     {
         Optional<User> optionalUser = userRepository.findByEmail(input.getEmail());
-        if(optionalUser.isPresent())
+        if (optionalUser.isEmpty())
         {
-            User user = optionalUser.get();
-            if(user.getVerificationCodeExpiredAt().isBefore(LocalDateTime.now()))
-            {
-                throw new RuntimeException("Verification code has expired");
-            }
+            countVerification("user_not_found");
+            throw new RuntimeException("User not found");
+        }
+        User user = optionalUser.get();
+        if (user.isEnabled())
+        {
+            countVerification("already_verified");
+            throw new InvalidVerificationCodeException("Account is already verified");
+        }
 
-            if(user.getVerificationCode().equals(input.getVerificationCode()))
-            {
+        VerificationCodeService.Outcome outcome = verificationCodeService.check(
+                user.getId(), VerificationPurpose.ACCOUNT_VERIFICATION, input.getVerificationCode());
+        countVerification(outcome.name().toLowerCase(Locale.ROOT));
+        switch (outcome)
+        {
+            case VERIFIED -> {
                 user.setEnabled(true);
-                user.setVerificationCode(null);
-                user.setVerificationCode(null);
                 userRepository.save(user);
-            } else
-            {
-                throw new RuntimeException("Invalid verification code");
+                userDetailsService.evict(user.getEmail());
             }
-        } else
-        {
-            throw new RuntimeException("User not found");
+            case EXPIRED, MISSING -> throw new InvalidVerificationCodeException("Verification code has expired");
+            case TOO_MANY_ATTEMPTS -> throw new InvalidVerificationCodeException("Too many attempts, request a new verification code");
+            default -> throw new InvalidVerificationCodeException("Invalid verification code");
         }
     }
 
+    private void countVerification(String outcome)
+    {
+        meterRegistry.counter("auth.verification", "outcome", outcome).increment();
+    }
+
+    @Transactional
     public void resendVerificationCode(String email)
     {
         Optional<User> optionalUser = userRepository.findByEmail(email);
@@ -114,45 +235,24 @@ public class AuthenticationService {
             {
                 throw new RuntimeException("Account is already verified");
             }
-            user.setVerificationCode(generateVerificationCode());
-            user.setVerificationCodeExpiredAt(LocalDateTime.now().plusHours(1));
-            sendVerificationEmail(user);
-            userRepository.save(user);
+            String code = verificationCodeService.issue(user.getId(), VerificationPurpose.ACCOUNT_VERIFICATION, resendCodeTtl);
+            sendVerificationEmail(user, code, LocalDateTime.now().plus(resendCodeTtl));
         } else {
             throw new RuntimeException("User not found");
         }
     }
 
-    public void sendVerificationEmail(User user)
+    // The email expires with the code, an undelivered copy is then dropped instead of keeping the code readable
+    public void sendVerificationEmail(User user, String verificationCode, LocalDateTime expiresAt)
     {
-        String subject = "Account verification";
-        String verificationCode = user.getVerificationCode();
-        String htmlMessage = "<html>"
-                + "<body style=\"font-family: Arial, sans-serif;\">"
-                + "<div style=\"background-color: #f5f5f5; padding: 20px;\">"
-                + "<h2 style=\"color: #333;\">Welcome to our app!</h2>"
-                + "<p style=\"font-size: 16px;\">Please enter the verification code below to continue:</p>"
-                + "<div style=\"background-color: #fff; padding: 20px; border-radius: 5px; box-shadow: 0 0 10px rgba(0,0,0,0.1);\">"
-                + "<h3 style=\"color: #333;\">Verification Code:</h3>"
-                + "<p style=\"font-size: 18px; font-weight: bold; color: #007bff;\">" + verificationCode + "</p>"
-                + "</div>"
-                + "</div>"
-                + "</body>"
-                + "</html>";
-
-        try {
-            emailService.sendVerificationEmail(user.getEmail(), subject, htmlMessage);
-        } catch (MessagingException e) {
-            e.printStackTrace();
-        }
-
-    }
-    private String generateVerificationCode() {
-        Random random = new Random();
-        int code = random.nextInt(900000) + 100000;
-        return String.valueOf(code);
+        RenderedEmail email = emailTemplateService.render(
+                EmailTemplateService.VERIFICATION,
+                LocaleContextHolder.getLocale(),
+                Map.of("verificationCode", verificationCode));
+        emailOutboxService.enqueue(user.getEmail(), email, expiresAt);
     }
 
+    @Transactional
     public void sendResetPassword(String email, HttpServletResponse response) {
         Optional<User> optionalUser = userRepository.findByEmail(email);
         if (optionalUser.isPresent()) {
@@ -168,35 +268,28 @@ public class AuthenticationService {
             response.addCookie(resetTokenCookie);
 
 
-            String subject = "Password Reset Request";
-            String htmlMessage = "<html>"
-                    + "<body>"
-                    + "<p>Please click the link below to reset your password:</p>"
-                    + "<a href=\"" + resetUrl + "\">Reset Password</a>"
-                    + "</body>"
-                    + "</html>";
-
-            try {
-                emailService.sendVerificationEmail(email, subject, htmlMessage);
-            } catch (MessagingException e) {
-                e.printStackTrace();
-                throw new RuntimeException("Failed to send email");
-            }
+            RenderedEmail resetEmail = emailTemplateService.render(
+                    EmailTemplateService.PASSWORD_RESET,
+                    LocaleContextHolder.getLocale(),
+                    Map.of("resetUrl", resetUrl));
+            emailOutboxService.enqueue(email, resetEmail);
         } else {
             throw new RuntimeException("User not found");
         }
     }
 
+    @Transactional
     public void resetPassword(String token, String newPassword) {
 
-        String email;
+        VerifiedToken verifiedToken;
         try {
-            email = jwtService.extractUsername(token);
+            verifiedToken = jwtService.verifyResetToken(token);
         } catch (RuntimeException e) {
-            logger.error("Error extracting username from token: {}", e.getMessage());
+            logger.error("Error verifying reset token: {}", e.getMessage());
             throw new RuntimeException("Invalid or expired reset token");
         }
 
+        String email = verifiedToken.subject();
         Optional<User> optionalUser = userRepository.findByEmail(email);
         if (optionalUser.isEmpty()) {
             logger.info("User not found for email: {}", email);
@@ -204,12 +297,19 @@ public class AuthenticationService {
         }
 
         User user = optionalUser.get();
-        if (!jwtService.isResetTokenValid(token, user.getEmail())) {
+        if (!jwtService.isResetTokenValid(verifiedToken, user.getEmail()) || tokenRevocationService.isRevoked(verifiedToken)) {
             throw new RuntimeException("Invalid or expired reset token");
         }
 
         user.setPassword(passwordEncoder.encode(newPassword));
+        user.setSecurityVersion(user.getSecurityVersion() + 1);
+        user.setSecurityVersionChangedAt(LocalDateTime.now());
         userRepository.save(user);
+        securityVersionRegistry.recordChange(user.getId(), user.getSecurityVersion());
+        refreshTokenService.revokeAll(user.getId());
+        tokenRevocationService.revoke(verifiedToken);
+        verifiedTokenCache.invalidateUser(user.getUsername());
+        userDetailsService.evict(user.getEmail());
     }
 
     public static class EmailAlreadyRegisteredException extends RuntimeException {
@@ -0,0 +1,114 @@
+package SocialTalk.Auth_Service.Service;
+
+import SocialTalk.Auth_Service.Model.User;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+public class CachedUserDetailsService implements UserDetailsService {
+    private final UserDetailsService delegate;
+    private final SecurityVersionRegistry securityVersionRegistry;
+    private final AsyncCache<String, UserDetails> cache;
+
+    public CachedUserDetailsService(
+            UserDetailsService delegate,
+            SecurityVersionRegistry securityVersionRegistry,
+            Duration timeToLive,
+            long maxSize,
+            MeterRegistry meterRegistry)
+    {
+        this.delegate = delegate;
+        this.securityVersionRegistry = securityVersionRegistry;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "users.userDetails");
+    }
+
+    // An async cache so the JDBC call does not run inside Cache.get()'s compute, which holds a synchronized
+    // ConcurrentHashMap bin and pins the carrier on a virtual thread. Only inserting the future takes the lock, the
+    // caller that inserted it loads the user and concurrent callers wait on the future. Loads stay atomic with
+    // evict(): it removes the future, so a load that read the row before a password reset committed cannot put the
+    // old user back.
+    @Override
+    public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException
+    {
+        CompletableFuture<UserDetails> loading = new CompletableFuture<>();
+        CompletableFuture<UserDetails> future = cache.get(email, (key, executor) -> loading);
+        if (future == loading)
+        {
+            return load(email, loading);
+        }
+        UserDetails cached = join(future);
+        if (isCurrent(cached))
+        {
+            return cached;
+        }
+        cache.asMap().remove(email, future);
+        return loadUserByUsername(email);
+    }
+
+    private UserDetails load(String email, CompletableFuture<UserDetails> loading)
+    {
+        try {
+            UserDetails loaded = delegate.loadUserByUsername(email);
+            loading.complete(loaded);
+            return loaded;
+        } catch (RuntimeException e) {
+            // A failed future is dropped from the cache, the next call loads again
+            loading.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static UserDetails join(CompletableFuture<UserDetails> future)
+    {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+            {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // evict() only reaches this instance, a reset on another one shows up as a newer version in the registry
+    private boolean isCurrent(UserDetails userDetails)
+    {
+        return !(userDetails instanceof User user)
+                || securityVersionRegistry.isCurrent(user.getId(), user.getSecurityVersion());
+    }
+
+    public void evict(String email)
+    {
+        if (email == null)
+        {
+            return;
+        }
+        cache.synchronous().invalidate(email);
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status)
+                {
+                    cache.synchronous().invalidate(email);
+                }
+            });
+        }
+    }
+}
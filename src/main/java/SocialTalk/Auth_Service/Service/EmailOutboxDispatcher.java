@@ -0,0 +1,231 @@
+package SocialTalk.Auth_Service.Service;
+
+import SocialTalk.Auth_Service.Model.EmailOutboxMessage;
+import SocialTalk.Auth_Service.Model.EmailOutboxStatus;
+import SocialTalk.Auth_Service.Repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class EmailOutboxDispatcher {
+    @Value("${email.outbox.workers:4}")
+    private int workers;
+    @Value("${email.outbox.batch-size:50}")
+    private int batchSize;
+    @Value("${email.outbox.max-attempts:8}")
+    private int maxAttempts;
+    @Value("${email.outbox.initial-backoff:PT10S}")
+    private Duration initialBackoff;
+    @Value("${email.outbox.max-backoff:PT30M}")
+    private Duration maxBackoff;
+    @Value("${email.outbox.lease:PT2M}")
+    private Duration lease;
+    @Value("${email.smtp.messages-per-connection:10}")
+    private int messagesPerConnection;
+
+    private static final Set<EmailOutboxStatus> CLAIMABLE = EnumSet.of(EmailOutboxStatus.PENDING, EmailOutboxStatus.SENDING);
+    private static final int MAX_ERROR_LENGTH = 1000;
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final EmailService emailService;
+    private final Counter sentCounter;
+    private final Counter retryCounter;
+    private final Counter deadCounter;
+    private final Timer deliveryLatency;
+    private ThreadPoolExecutor deliveryExecutor;
+
+    public EmailOutboxDispatcher(
+            EmailOutboxRepository emailOutboxRepository,
+            EmailService emailService,
+            MeterRegistry meterRegistry)
+    {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.emailService = emailService;
+        this.sentCounter = meterRegistry.counter("email.outbox.delivery", "outcome", "sent");
+        this.retryCounter = meterRegistry.counter("email.outbox.delivery", "outcome", "retry");
+        this.deadCounter = meterRegistry.counter("email.outbox.delivery", "outcome", "dead");
+        this.deliveryLatency = Timer.builder("email.outbox.latency")
+                .description("Time from enqueueing an email to handing it to the SMTP server")
+                .register(meterRegistry);
+    }
+
+    // Delivery stays on platform threads even when virtual threads are enabled: JavaMail's SMTPTransport
+    // performs its socket I/O inside synchronized methods, which would pin the carrier threads.
+    @PostConstruct
+    void init()
+    {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.deliveryExecutor = new ThreadPoolExecutor(
+                workers,
+                workers,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(batchSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "email-outbox-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    void shutdown()
+    {
+        deliveryExecutor.shutdown();
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.poll-interval:PT1S}")
+    public void dispatchDueMessages()
+    {
+        // Only claim what the workers can take right now, a claim counts as a delivery attempt
+        int limit = Math.min(batchSize, freeDeliverySlots() * messagesPerConnection);
+        if (limit <= 0)
+        {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        // Whole seconds, so the value read back from the column compares equal whatever precision it keeps
+        LocalDateTime leaseUntil = now.plus(lease).truncatedTo(ChronoUnit.SECONDS);
+        // No new message is started in the second half of the lease, so a started one finishes well before it ends
+        long sendDeadline = System.nanoTime() + lease.toNanos() / 2;
+        List<Long> dueIds = emailOutboxRepository.findDueIds(CLAIMABLE, now, PageRequest.of(0, limit));
+
+        List<Long> claimed = new ArrayList<>();
+        for (Long id : dueIds)
+        {
+            if (emailOutboxRepository.claim(id, CLAIMABLE, now, leaseUntil, EmailOutboxStatus.SENDING) == 1)
+            {
+                claimed.add(id);
+            }
+        }
+
+        for (int from = 0; from < claimed.size(); from += messagesPerConnection)
+        {
+            List<Long> batch = List.copyOf(claimed.subList(from, Math.min(from + messagesPerConnection, claimed.size())));
+            try {
+                deliveryExecutor.execute(() -> deliver(batch, leaseUntil, sendDeadline));
+            } catch (RejectedExecutionException e) {
+                List<Long> unsubmitted = claimed.subList(from, claimed.size());
+                emailOutboxRepository.release(unsubmitted, EmailOutboxStatus.SENDING, EmailOutboxStatus.PENDING, LocalDateTime.now());
+                logger.warn("Delivery workers are saturated, released {} emails for the next poll", unsubmitted.size());
+                return;
+            }
+        }
+    }
+
+    private int freeDeliverySlots()
+    {
+        return deliveryExecutor.getQueue().remainingCapacity() + workers - deliveryExecutor.getActiveCount();
+    }
+
+    void deliver(List<Long> ids, LocalDateTime leaseUntil, long sendDeadline)
+    {
+        List<EmailOutboxMessage> messages = new ArrayList<>();
+        List<MimeMessage> mimeMessages = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (EmailOutboxMessage message : emailOutboxRepository.findAllById(ids))
+        {
+            // Claimed again by a later poll after this lease ran out
+            if (message.getStatus() != EmailOutboxStatus.SENDING || !leaseUntil.equals(message.getNextAttemptAt()))
+            {
+                continue;
+            }
+            if (message.getExpiresAt() != null && !message.getExpiresAt().isAfter(now))
+            {
+                emailOutboxRepository.markExpired(message.getId(), EmailOutboxStatus.SENDING, leaseUntil, EmailOutboxStatus.EXPIRED, now);
+                logger.debug("Email {} expired before it could be delivered", message.getId());
+                continue;
+            }
+            try {
+                mimeMessages.add(emailService.createMessage(
+                        message.getRecipient(),
+                        message.getSubject(),
+                        message.getTextBody(),
+                        message.getHtmlBody()));
+                messages.add(message);
+            } catch (Exception e) {
+                recordFailure(message, leaseUntil, e);
+            }
+        }
+        if (messages.isEmpty())
+        {
+            return;
+        }
+
+        List<Exception> failures = emailService.sendBatch(mimeMessages, sendDeadline);
+        for (int i = 0; i < messages.size(); i++)
+        {
+            Exception failure = failures.get(i);
+            if (failure == null)
+            {
+                recordSent(messages.get(i), leaseUntil);
+            } else
+            {
+                recordFailure(messages.get(i), leaseUntil, failure);
+            }
+        }
+    }
+
+    private void recordSent(EmailOutboxMessage message, LocalDateTime leaseUntil)
+    {
+        LocalDateTime sentAt = LocalDateTime.now();
+        sentCounter.increment();
+        deliveryLatency.record(Duration.between(message.getCreatedAt(), sentAt));
+        if (emailOutboxRepository.markSent(message.getId(), EmailOutboxStatus.SENDING, leaseUntil, EmailOutboxStatus.SENT, sentAt) == 0)
+        {
+            logger.warn("Email {} was sent after its lease ran out and may be delivered twice", message.getId());
+        }
+    }
+
+    private void recordFailure(EmailOutboxMessage message, LocalDateTime leaseUntil, Exception e)
+    {
+        String error = String.valueOf(e.getMessage());
+        String lastError = error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+        LocalDateTime now = LocalDateTime.now();
+
+        if (message.getAttempts() >= maxAttempts)
+        {
+            if (emailOutboxRepository.markDead(message.getId(), EmailOutboxStatus.SENDING, leaseUntil, EmailOutboxStatus.DEAD, now, lastError) == 1)
+            {
+                deadCounter.increment();
+                logger.error("Email {} moved to dead letter after {} attempts: {}", message.getId(), message.getAttempts(), error);
+            }
+            return;
+        }
+
+        Duration backoff = initialBackoff.multipliedBy(1L << Math.min(message.getAttempts() - 1, 20));
+        if (backoff.compareTo(maxBackoff) > 0)
+        {
+            backoff = maxBackoff;
+        }
+        if (emailOutboxRepository.markRetry(message.getId(), EmailOutboxStatus.SENDING, leaseUntil, EmailOutboxStatus.PENDING, now.plus(backoff), lastError) == 1)
+        {
+            retryCounter.increment();
+            logger.warn("Email {} delivery attempt {} failed, retrying in {}: {}", message.getId(), message.getAttempts(), backoff, error);
+        }
+    }
+}
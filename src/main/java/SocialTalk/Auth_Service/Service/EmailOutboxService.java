@@ -0,0 +1,36 @@
+package SocialTalk.Auth_Service.Service;
+
+import SocialTalk.Auth_Service.Model.EmailOutboxMessage;
+import SocialTalk.Auth_Service.Repository.EmailOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Service
+public class EmailOutboxService {
+    private final EmailOutboxRepository emailOutboxRepository;
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxService.class);
+
+    public EmailOutboxService(EmailOutboxRepository emailOutboxRepository)
+    {
+        this.emailOutboxRepository = emailOutboxRepository;
+    }
+
+    @Transactional
+    public EmailOutboxMessage enqueue(String to, RenderedEmail email)
+    {
+        return enqueue(to, email, null);
+    }
+
+    @Transactional
+    public EmailOutboxMessage enqueue(String to, RenderedEmail email, LocalDateTime expiresAt)
+    {
+        EmailOutboxMessage message = emailOutboxRepository.save(
+                new EmailOutboxMessage(to, email.subject(), email.htmlBody(), email.textBody(), expiresAt));
+        logger.debug("Queued email {} for delivery", message.getId());
+        return message;
+    }
+}
@@ -1,26 +1,281 @@
 package SocialTalk.Auth_Service.Service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Transport;
 import jakarta.mail.internet.MimeMessage;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.javamail.JavaMailSender;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
 import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
 @Service
 public class EmailService {
+    @Value("${email.smtp.idle-timeout:PT30S}")
+    private Duration idleTimeout;
+    @Value("${email.smtp.borrow-timeout:PT30S}")
+    private Duration borrowTimeout;
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailService.class);
 
-    @Autowired
-    private JavaMailSender emailSender;
+    private final JavaMailSenderImpl emailSender;
+    private final Semaphore connectionPermits;
+    private final BlockingDeque<PooledTransport> idleTransports = new LinkedBlockingDeque<>();
+    private final Timer sendTimer;
+    private final Counter sendFailures;
+    private final Counter connectionsOpened;
+    private final DistributionSummary messagesPerConnection;
+
+    public EmailService(
+            JavaMailSenderImpl emailSender,
+            MeterRegistry meterRegistry,
+            @Value("${email.smtp.pool-size:4}") int poolSize)
+    {
+        this.emailSender = emailSender;
+        this.connectionPermits = new Semaphore(poolSize, true);
+        this.sendTimer = Timer.builder("email.smtp.send")
+                .description("Time spent handing a single message to the SMTP server")
+                .register(meterRegistry);
+        this.sendFailures = Counter.builder("email.smtp.send.failures")
+                .register(meterRegistry);
+        this.connectionsOpened = Counter.builder("email.smtp.connections.opened")
+                .register(meterRegistry);
+        this.messagesPerConnection = DistributionSummary.builder("email.smtp.messages.per.connection")
+                .description("Messages delivered over one SMTP connection before it was closed")
+                .register(meterRegistry);
+    }
 
-    public void sendVerificationEmail(String to, String subject, String text) throws MessagingException {
+    public MimeMessage createMessage(String to, String subject, String plainText, String htmlText) throws MessagingException {
         MimeMessage message = emailSender.createMimeMessage();
-        MimeMessageHelper helper = new MimeMessageHelper(message, true);
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
 
         helper.setTo(to);
         helper.setSubject(subject);
-        helper.setText(text, true);
+        if (plainText != null)
+        {
+            helper.setText(plainText, htmlText);
+        } else
+        {
+            helper.setText(htmlText, true);
+        }
+        return message;
+    }
+
+    // Messages not started by deadlineNanos (a System.nanoTime() value) fail without being sent
+    public List<Exception> sendBatch(List<MimeMessage> messages, long deadlineNanos)
+    {
+        List<Exception> failures = new ArrayList<>(messages.size());
+        PooledTransport transport;
+        try {
+            transport = borrow();
+        } catch (Exception e) {
+            if (e instanceof InterruptedException)
+            {
+                Thread.currentThread().interrupt();
+            }
+            messages.forEach(message -> failures.add(e));
+            sendFailures.increment(messages.size());
+            return failures;
+        }
+
+        try {
+            for (MimeMessage message : messages)
+            {
+                if (System.nanoTime() - deadlineNanos > 0)
+                {
+                    failures.add(new MessagingException("Delivery deadline passed before the message was sent"));
+                    continue;
+                }
+                failures.add(send(transport, message));
+            }
+        } finally {
+            release(transport);
+        }
+        return failures;
+    }
+
+    private Exception send(PooledTransport transport, MimeMessage message)
+    {
+        long start = System.nanoTime();
+        try {
+            try {
+                transport.send(message);
+            } catch (MessagingException e) {
+                if (e instanceof SendFailedException || transport.isConnected())
+                {
+                    throw e;
+                }
+                logger.debug("SMTP connection dropped, reconnecting: {}", e.getMessage());
+                transport.reconnect();
+                connectionsOpened.increment();
+                transport.send(message);
+            }
+            return null;
+        } catch (Exception e) {
+            sendFailures.increment();
+            return e;
+        } finally {
+            sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private PooledTransport borrow() throws MessagingException, InterruptedException
+    {
+        if (!connectionPermits.tryAcquire(borrowTimeout.toMillis(), TimeUnit.MILLISECONDS))
+        {
+            throw new MessagingException("Timed out waiting for an SMTP connection");
+        }
+
+        try {
+            PooledTransport pooled;
+            while ((pooled = idleTransports.pollFirst()) != null)
+            {
+                if (!pooled.isIdleLongerThan(idleTimeout) && pooled.isConnected())
+                {
+                    return pooled;
+                }
+                close(pooled);
+            }
+            PooledTransport created = new PooledTransport(emailSender.getSession().getTransport(protocol()));
+            created.connect();
+            connectionsOpened.increment();
+            return created;
+        } catch (MessagingException | RuntimeException e) {
+            connectionPermits.release();
+            throw e;
+        }
+    }
+
+    private void release(PooledTransport transport)
+    {
+        try {
+            if (!transport.broken)
+            {
+                transport.touch();
+                idleTransports.offerFirst(transport);
+            } else
+            {
+                close(transport);
+            }
+        } finally {
+            connectionPermits.release();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${email.smtp.idle-check-interval:PT15S}")
+    public void closeIdleConnections()
+    {
+        Iterator<PooledTransport> iterator = idleTransports.descendingIterator();
+        while (iterator.hasNext())
+        {
+            PooledTransport pooled = iterator.next();
+            if (pooled.isIdleLongerThan(idleTimeout) && idleTransports.remove(pooled))
+            {
+                close(pooled);
+            }
+        }
+    }
+
+    @PreDestroy
+    void closeAll()
+    {
+        PooledTransport pooled;
+        while ((pooled = idleTransports.pollFirst()) != null)
+        {
+            close(pooled);
+        }
+    }
+
+    private void close(PooledTransport pooled)
+    {
+        messagesPerConnection.record(pooled.messagesSent);
+        try {
+            pooled.transport.close();
+        } catch (MessagingException e) {
+            logger.debug("Error closing SMTP connection: {}", e.getMessage());
+        }
+    }
+
+    private String protocol()
+    {
+        return emailSender.getProtocol() != null ? emailSender.getProtocol() : JavaMailSenderImpl.DEFAULT_PROTOCOL;
+    }
+
+    private final class PooledTransport {
+        private final Transport transport;
+        private volatile long lastUsedNanos = System.nanoTime();
+        private long messagesSent;
+        private boolean broken;
+
+        private PooledTransport(Transport transport)
+        {
+            this.transport = transport;
+        }
+
+        private void connect() throws MessagingException
+        {
+            transport.connect(
+                    emailSender.getHost(),
+                    emailSender.getPort(),
+                    emailSender.getUsername(),
+                    emailSender.getPassword());
+        }
+
+        private void reconnect() throws MessagingException
+        {
+            try {
+                transport.close();
+            } catch (MessagingException ignored) {
+            }
+            messagesPerConnection.record(messagesSent);
+            messagesSent = 0;
+            broken = true;
+            connect();
+            broken = false;
+        }
+
+        private void send(MimeMessage message) throws MessagingException
+        {
+            if (message.getSentDate() == null)
+            {
+                message.setSentDate(new Date());
+            }
+            message.saveChanges();
+            transport.sendMessage(message, message.getAllRecipients());
+            messagesSent++;
+        }
+
+        private boolean isConnected()
+        {
+            return transport.isConnected();
+        }
+
+        private void touch()
+        {
+            lastUsedNanos = System.nanoTime();
+        }
 
-        emailSender.send(message);
+        private boolean isIdleLongerThan(Duration timeout)
+        {
+            return System.nanoTime() - lastUsedNanos > timeout.toNanos();
+        }
     }
 }
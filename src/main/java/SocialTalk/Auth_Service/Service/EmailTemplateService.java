@@ -0,0 +1,199 @@
+package SocialTalk.Auth_Service.Service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+@Service
+public class EmailTemplateService {
+    @Value("${email.templates.location:email-templates}")
+    private String location;
+    @Value("${email.templates.locales:pl}")
+    private List<String> additionalLocales;
+
+    public static final String VERIFICATION = "verification";
+    public static final String PASSWORD_RESET = "password-reset";
+    private static final List<String> TEMPLATE_NAMES = List.of(VERIFICATION, PASSWORD_RESET);
+    private static final int MAX_REUSED_BUFFER = 64 * 1024;
+    private static final Logger logger = LoggerFactory.getLogger(EmailTemplateService.class);
+
+    private final Map<String, CompiledTemplate> templates = new HashMap<>();
+    private final ThreadLocal<StringBuilder> buffers = ThreadLocal.withInitial(() -> new StringBuilder(2048));
+
+    @PostConstruct
+    void loadTemplates() throws IOException
+    {
+        for (String name : TEMPLATE_NAMES)
+        {
+            load(name, null);
+            for (String locale : additionalLocales)
+            {
+                load(name, locale.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        logger.info("Loaded {} email template parts from {}", templates.size(), location);
+    }
+
+    public RenderedEmail render(String name, Locale locale, Map<String, String> values)
+    {
+        String language = locale != null ? locale.getLanguage() : null;
+        return new RenderedEmail(
+                render(resolve(name, language, "subject"), values, false).strip(),
+                render(resolve(name, language, "html"), values, true),
+                render(resolve(name, language, "txt"), values, false)
+        );
+    }
+
+    private CompiledTemplate resolve(String name, String language, String part)
+    {
+        CompiledTemplate template = language != null ? templates.get(key(name, language, part)) : null;
+        if (template == null)
+        {
+            template = templates.get(key(name, null, part));
+        }
+        if (template == null)
+        {
+            throw new IllegalStateException("Missing email template " + key(name, null, part));
+        }
+        return template;
+    }
+
+    private String render(CompiledTemplate template, Map<String, String> values, boolean escapeHtml)
+    {
+        if (Thread.currentThread().isVirtual())
+        {
+            // Virtual threads are not reused, a thread-local buffer would be allocated and dropped on every call
+            StringBuilder buffer = new StringBuilder(template.estimatedLength());
+            template.renderTo(buffer, values, escapeHtml);
+            return buffer.toString();
+        }
+
+        StringBuilder buffer = buffers.get();
+        buffer.setLength(0);
+        try {
+            template.renderTo(buffer, values, escapeHtml);
+            return buffer.toString();
+        } finally {
+            if (buffer.capacity() > MAX_REUSED_BUFFER)
+            {
+                buffers.remove();
+            }
+        }
+    }
+
+    private void load(String name, String language) throws IOException
+    {
+        for (String part : List.of("subject", "html", "txt"))
+        {
+            ClassPathResource resource = new ClassPathResource(location + "/" + key(name, language, part));
+            if (!resource.exists())
+            {
+                continue;
+            }
+            try (InputStream inputStream = resource.getInputStream()) {
+                String source = StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8);
+                templates.put(key(name, language, part), CompiledTemplate.compile(source));
+            }
+        }
+    }
+
+    private static String key(String name, String language, String part)
+    {
+        return language == null ? name + "." + part : name + "_" + language + "." + part;
+    }
+
+    static final class CompiledTemplate {
+        private final String[] segments;
+        private final String[] placeholders;
+        private final int estimatedLength;
+
+        private CompiledTemplate(String[] segments, String[] placeholders)
+        {
+            this.segments = segments;
+            this.placeholders = placeholders;
+            int length = 0;
+            for (String segment : segments)
+            {
+                length += segment.length();
+            }
+            this.estimatedLength = length + placeholders.length * 32;
+        }
+
+        int estimatedLength()
+        {
+            return estimatedLength;
+        }
+
+        static CompiledTemplate compile(String source)
+        {
+            List<String> segments = new ArrayList<>();
+            List<String> placeholders = new ArrayList<>();
+            int position = 0;
+            int open;
+            while ((open = source.indexOf("{{", position)) >= 0)
+            {
+                int close = source.indexOf("}}", open + 2);
+                if (close < 0)
+                {
+                    throw new IllegalArgumentException("Unclosed placeholder at offset " + open);
+                }
+                segments.add(source.substring(position, open));
+                placeholders.add(source.substring(open + 2, close).trim());
+                position = close + 2;
+            }
+            segments.add(source.substring(position));
+            return new CompiledTemplate(segments.toArray(String[]::new), placeholders.toArray(String[]::new));
+        }
+
+        void renderTo(StringBuilder out, Map<String, String> values, boolean escapeHtml)
+        {
+            for (int i = 0; i < placeholders.length; i++)
+            {
+                out.append(segments[i]);
+                String value = values.get(placeholders[i]);
+                if (value == null)
+                {
+                    throw new IllegalArgumentException("No value for email template placeholder " + placeholders[i]);
+                }
+                if (escapeHtml)
+                {
+                    appendEscaped(out, value);
+                } else
+                {
+                    out.append(value);
+                }
+            }
+            out.append(segments[segments.length - 1]);
+        }
+
+        private static void appendEscaped(StringBuilder out, String value)
+        {
+            for (int i = 0; i < value.length(); i++)
+            {
+                char c = value.charAt(i);
+                switch (c)
+                {
+                    case '<' -> out.append("&lt;");
+                    case '>' -> out.append("&gt;");
+                    case '&' -> out.append("&amp;");
+                    case '"' -> out.append("&quot;");
+                    case '\'' -> out.append("&#39;");
+                    default -> out.append(c);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package SocialTalk.Auth_Service.Service;
+
+public class InvalidRefreshTokenException extends RuntimeException {
+    public InvalidRefreshTokenException(String message) {
+        super(message);
+    }
+}
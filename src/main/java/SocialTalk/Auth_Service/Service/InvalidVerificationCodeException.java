@@ -0,0 +1,7 @@
+package SocialTalk.Auth_Service.Service;
+
+public class InvalidVerificationCodeException extends RuntimeException {
+    public InvalidVerificationCodeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,256 @@
+package SocialTalk.Auth_Service.Service;
+
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+public class JwtKeyRing {
+    @Value("${security.jwt.algorithm:HS256}")
+    private String algorithmName;
+    @Value("${security.jwt.secret-key:}")
+    private String secretKey;
+    @Value("${security.jwt.keystore.location:}")
+    private String keystoreLocation;
+    @Value("${security.jwt.keystore.type:PKCS12}")
+    private String keystoreType;
+    @Value("${security.jwt.keystore.password:}")
+    private String keystorePassword;
+    @Value("${security.jwt.keystore.active-kid:}")
+    private String activeKid;
+    // Password reset tokens are only ever verified by this service, so they are signed with a secret that is never
+    // published in the JWKS. Falls back to security.jwt.secret-key.
+    @Value("${security.jwt.reset-secret-key:}")
+    private String resetSecretKey;
+    @Value("${security.jwt.allow-ephemeral-key:false}")
+    private boolean allowEphemeralKey;
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtKeyRing.class);
+
+    private final ResourceLoader resourceLoader;
+    private SignatureAlgorithm algorithm;
+    private Key signingKey;
+    private String signingKid;
+    private Key resetKey;
+    private Key secretVerificationKey;
+    private Map<String, PublicKey> publicKeys = Map.of();
+
+    public JwtKeyRing(ResourceLoader resourceLoader)
+    {
+        this.resourceLoader = resourceLoader;
+    }
+
+    @PostConstruct
+    void init() throws Exception
+    {
+        this.algorithm = SignatureAlgorithm.forName(algorithmName);
+        this.resetKey = resetKey();
+        if (algorithm.isHmac())
+        {
+            if (secretKey == null || secretKey.isBlank())
+            {
+                throw new IllegalStateException("security.jwt.secret-key is required for " + algorithm.getValue());
+            }
+            this.signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+            this.secretVerificationKey = signingKey;
+            return;
+        }
+        if (algorithm != SignatureAlgorithm.RS256 && algorithm != SignatureAlgorithm.ES256)
+        {
+            throw new IllegalStateException("Unsupported JWT algorithm " + algorithm.getValue() + ", use HS256, RS256 or ES256");
+        }
+
+        Map<String, PublicKey> keys = new LinkedHashMap<>();
+        Map<String, PrivateKey> privateKeys = new LinkedHashMap<>();
+        if (keystoreLocation == null || keystoreLocation.isBlank())
+        {
+            // Every instance would sign with its own key and every restart would invalidate all tokens
+            if (!allowEphemeralKey)
+            {
+                throw new IllegalStateException("security.jwt.keystore.location is required for " + algorithm.getValue()
+                        + ", set security.jwt.allow-ephemeral-key=true to sign with a generated key on a single local instance");
+            }
+            KeyPair keyPair = generateKeyPair();
+            String kid = TokenDigest.sha256(Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded())).substring(0, 16);
+            keys.put(kid, keyPair.getPublic());
+            privateKeys.put(kid, keyPair.getPrivate());
+            logger.warn("No JWT keystore configured, signing with an ephemeral {} key {}. "
+                    + "Tokens will not survive a restart and are not shared between instances", algorithm.getValue(), kid);
+        } else
+        {
+            loadKeystore(keys, privateKeys);
+        }
+
+        String kid = activeKid == null || activeKid.isBlank()
+                ? (privateKeys.size() == 1 ? privateKeys.keySet().iterator().next() : null)
+                : activeKid;
+        if (kid == null || !privateKeys.containsKey(kid))
+        {
+            throw new IllegalStateException("security.jwt.keystore.active-kid must name one of " + privateKeys.keySet());
+        }
+        this.signingKid = kid;
+        this.signingKey = privateKeys.get(kid);
+        this.publicKeys = Collections.unmodifiableMap(keys);
+        logger.info("Signing JWT tokens with {} key {}, accepting keys {}", algorithm.getValue(), kid, keys.keySet());
+    }
+
+    public SignatureAlgorithm getAlgorithm()
+    {
+        return algorithm;
+    }
+
+    public Key getSigningKey()
+    {
+        return signingKey;
+    }
+
+    public String getSigningKid()
+    {
+        return signingKid;
+    }
+
+    public Key getResetKey()
+    {
+        return resetKey;
+    }
+
+    public Key verificationKey(String algorithmHeader, String kid)
+    {
+        if (!algorithm.getValue().equals(algorithmHeader))
+        {
+            throw new IllegalArgumentException("Unexpected JWT algorithm " + algorithmHeader);
+        }
+        if (secretVerificationKey != null)
+        {
+            return secretVerificationKey;
+        }
+        PublicKey key = kid != null ? publicKeys.get(kid) : null;
+        if (key == null)
+        {
+            throw new IllegalArgumentException("Unknown JWT key id " + kid);
+        }
+        return key;
+    }
+
+    public List<Map<String, Object>> jwks()
+    {
+        List<Map<String, Object>> jwks = new ArrayList<>(publicKeys.size());
+        publicKeys.forEach((kid, key) -> {
+            Map<String, Object> jwk = new LinkedHashMap<>();
+            if (key instanceof RSAPublicKey rsa)
+            {
+                jwk.put("kty", "RSA");
+                jwk.put("n", base64Url(rsa.getModulus(), 0));
+                jwk.put("e", base64Url(rsa.getPublicExponent(), 0));
+            } else if (key instanceof ECPublicKey ec)
+            {
+                jwk.put("kty", "EC");
+                jwk.put("crv", "P-256");
+                jwk.put("x", base64Url(ec.getW().getAffineX(), 32));
+                jwk.put("y", base64Url(ec.getW().getAffineY(), 32));
+            }
+            jwk.put("use", "sig");
+            jwk.put("alg", algorithm.getValue());
+            jwk.put("kid", kid);
+            jwks.add(jwk);
+        });
+        return jwks;
+    }
+
+    private void loadKeystore(Map<String, PublicKey> keys, Map<String, PrivateKey> privateKeys) throws Exception
+    {
+        Resource resource = resourceLoader.getResource(keystoreLocation);
+        char[] password = keystorePassword.toCharArray();
+        KeyStore keyStore = KeyStore.getInstance(keystoreType);
+        try (InputStream in = resource.getInputStream()) {
+            keyStore.load(in, password);
+        }
+
+        for (String alias : Collections.list(keyStore.aliases()))
+        {
+            Certificate certificate = keyStore.getCertificate(alias);
+            if (certificate == null || !matchesAlgorithm(certificate.getPublicKey()))
+            {
+                logger.warn("Skipping keystore entry {}, it does not hold a {} key", alias, algorithm.getValue());
+                continue;
+            }
+            keys.put(alias, certificate.getPublicKey());
+            if (keyStore.isKeyEntry(alias))
+            {
+                privateKeys.put(alias, (PrivateKey) keyStore.getKey(alias, password));
+            }
+        }
+    }
+
+    private boolean matchesAlgorithm(PublicKey key)
+    {
+        if (algorithm.isRsa())
+        {
+            return key instanceof RSAPublicKey rsa && rsa.getModulus().bitLength() >= 2048;
+        }
+        return key instanceof ECPublicKey ec && ec.getParams().getCurve().getField().getFieldSize() == 256;
+    }
+
+    private Key resetKey()
+    {
+        String secret = resetSecretKey != null && !resetSecretKey.isBlank() ? resetSecretKey : secretKey;
+        if (secret != null && !secret.isBlank())
+        {
+            return Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+        }
+        if (!allowEphemeralKey)
+        {
+            throw new IllegalStateException("security.jwt.reset-secret-key or security.jwt.secret-key is required to sign password reset tokens");
+        }
+        return Keys.secretKeyFor(SignatureAlgorithm.HS256);
+    }
+
+    private KeyPair generateKeyPair() throws Exception
+    {
+        if (algorithm.isRsa())
+        {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            return generator.generateKeyPair();
+        }
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        return generator.generateKeyPair();
+    }
+
+    private static String base64Url(BigInteger value, int length)
+    {
+        byte[] bytes = value.toByteArray();
+        int start = bytes.length > 1 && bytes[0] == 0 ? 1 : 0;
+        int size = Math.max(bytes.length - start, length);
+        byte[] unsigned = new byte[size];
+        System.arraycopy(bytes, start, unsigned, size - (bytes.length - start), bytes.length - start);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(unsigned);
+    }
+}
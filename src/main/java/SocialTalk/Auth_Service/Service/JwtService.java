@@ -1,10 +1,17 @@
 package SocialTalk.Auth_Service.Service;
 
+import SocialTalk.Auth_Service.Model.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Header;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -15,16 +22,107 @@ import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 @Service
 public class JwtService {
-    @Value("${security.jwt.secret-key}")
-    private String secretKey;
     @Value("${security.jwt.expiration-time}")
     private long jwtExpiration;
     private static final Logger logger = LoggerFactory.getLogger(JwtService.class);
 
+    public static final String USER_ID_CLAIM = "userId";
+    public static final String EMAIL_CLAIM = "email";
+    public static final String USERNAME_CLAIM = "username";
+    public static final String ENABLED_CLAIM = "enabled";
+    public static final String SECURITY_VERSION_CLAIM = "sv";
+    public static final String PURPOSE_CLAIM = "purpose";
+    // typ header values, so verifiers that only check the signature can still tell the two kinds of token apart
+    public static final String ACCESS_TOKEN_TYPE = "at+jwt";
+    public static final String RESET_TOKEN_TYPE = "reset+jwt";
+    public static final String RESET_AUDIENCE = "password-reset";
+
+    private final JwtKeyRing keyRing;
+    private final MeterRegistry meterRegistry;
+    private JwtParser jwtParser;
+    private JwtParser resetTokenParser;
+    private Timer signTimer;
+    private Timer verifyTimer;
+
+    public JwtService(JwtKeyRing keyRing, MeterRegistry meterRegistry)
+    {
+        this.keyRing = keyRing;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void init()
+    {
+        this.signTimer = Timer.builder("jwt.sign")
+                .tag("algorithm", keyRing.getAlgorithm().getValue())
+                .register(meterRegistry);
+        this.verifyTimer = Timer.builder("jwt.verify")
+                .tag("algorithm", keyRing.getAlgorithm().getValue())
+                .register(meterRegistry);
+        this.jwtParser = Jwts
+                .parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims)
+                    {
+                        if (RESET_TOKEN_TYPE.equals(header.getType()))
+                        {
+                            throw new IllegalArgumentException("Password reset tokens are not access tokens");
+                        }
+                        return keyRing.verificationKey(header.getAlgorithm(), header.getKeyId());
+                    }
+                })
+                .build();
+        this.resetTokenParser = Jwts
+                .parserBuilder()
+                .requireAudience(RESET_AUDIENCE)
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims)
+                    {
+                        if (!RESET_TOKEN_TYPE.equals(header.getType())
+                                || !SignatureAlgorithm.HS256.getValue().equals(header.getAlgorithm()))
+                        {
+                            throw new IllegalArgumentException("Not a password reset token");
+                        }
+                        return keyRing.getResetKey();
+                    }
+                })
+                .build();
+    }
+
+    public VerifiedToken verify(String token)
+    {
+        return toVerifiedToken(extractAllClaims(jwtParser, token));
+    }
+
+    public VerifiedToken verifyResetToken(String token)
+    {
+        return toVerifiedToken(extractAllClaims(resetTokenParser, token));
+    }
+
+    private VerifiedToken toVerifiedToken(Claims claims)
+    {
+        final Date expiration = claims.getExpiration();
+        final Integer securityVersion = claims.get(SECURITY_VERSION_CLAIM, Integer.class);
+        return new VerifiedToken(
+                claims.getId(),
+                claims.getSubject(),
+                claims.get(USER_ID_CLAIM, Long.class),
+                claims.get(EMAIL_CLAIM, String.class),
+                claims.get(USERNAME_CLAIM, String.class),
+                claims.get(ENABLED_CLAIM, Boolean.class),
+                securityVersion != null ? securityVersion : 0,
+                expiration != null ? expiration.toInstant() : null,
+                claims.get(PURPOSE_CLAIM, String.class)
+        );
+    }
 
     public String extractUsername(String token)
     {
@@ -33,13 +131,25 @@ public class JwtService {
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver)
     {
-        final Claims claims = extractAllClaims(token);
+        final Claims claims = extractAllClaims(jwtParser, token);
         return claimsResolver.apply(claims);
     }
 
+    public String generateToken(User user)
+    {
+        Map<String, Object> extraClaims = new HashMap<>();
+        extraClaims.put(USER_ID_CLAIM, user.getId());
+        extraClaims.put(EMAIL_CLAIM, user.getEmail());
+        extraClaims.put(USERNAME_CLAIM, user.getUsername());
+        extraClaims.put(ENABLED_CLAIM, user.isEnabled());
+        extraClaims.put(SECURITY_VERSION_CLAIM, user.getSecurityVersion());
+
+        return generateToken(extraClaims, user);
+    }
+
     public String generateToken(UserDetails userDetails, Long userId) {
         Map<String, Object> extraClaims = new HashMap<>();
-        extraClaims.put("userId", userId);
+        extraClaims.put(USER_ID_CLAIM, userId);
 
         return generateToken(extraClaims, userDetails);
     }
@@ -59,80 +169,93 @@ public class JwtService {
             UserDetails userDetails,
             long expiration)
     {
-        return Jwts
+        return sign(Jwts
                 .builder()
+                .setHeaderParam(Header.TYPE, ACCESS_TOKEN_TYPE)
                 .setClaims(extraClaims)
+                .setId(UUID.randomUUID().toString())
                 .setSubject(userDetails.getUsername())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
-                .compact();
+                .setExpiration(new Date(System.currentTimeMillis() + expiration)));
     }
 
-    public boolean isTokenValid(String token, UserDetails userDetails)
+    private String sign(JwtBuilder builder)
     {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        if (keyRing.getSigningKid() != null)
+        {
+            builder.setHeaderParam(JwsHeader.KEY_ID, keyRing.getSigningKid());
+        }
+        long start = System.nanoTime();
+        try {
+            return builder
+                    .signWith(keyRing.getSigningKey(), keyRing.getAlgorithm())
+                    .compact();
+        } finally {
+            signTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
     }
 
-    private boolean isTokenExpired(String token)
+    public boolean isTokenValid(String token, UserDetails userDetails)
     {
-        return extractExpiration(token).before(new Date());
+        return isTokenValid(verify(token), userDetails);
     }
 
-    private Date extractExpiration(String token)
+    public boolean isTokenValid(VerifiedToken token, UserDetails userDetails)
     {
-        return extractClaim(token, Claims::getExpiration);
+        final String username = token.subject();
+        // userDetails comes from CachedUserDetailsService, which reloads a user once the registry has seen a newer version
+        if (userDetails instanceof User user && user.getSecurityVersion() != token.securityVersion())
+        {
+            return false;
+        }
+        return (username != null && username.equals(userDetails.getUsername()) && !token.isExpired());
     }
 
     public Long extractUserId(String token) {
-        final Claims claims = extractAllClaims(token);
-        return claims.get("userId", Long.class);
+        return verify(token).userId();
     }
 
-    private Claims extractAllClaims(String token)
+    private Claims extractAllClaims(JwtParser parser, String token)
     {
+        long start = System.nanoTime();
         try {
-            return Jwts
-                    .parserBuilder()
-                    .setSigningKey(getSignInKey())
-                    .build()
+            return parser
                     .parseClaimsJws(token)
                     .getBody();
         } catch (Exception e) {
             throw new RuntimeException("Invalid JWT Token", e);
+        } finally {
+            verifyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
     }
 
-    private Key getSignInKey()
-    {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
-    }
-
+    // Signed with the reset key, which is not in the JWKS, and marked with its own typ and aud
     public String generateResetToken(String email) {
         Map<String, Object> extraClaims = new HashMap<>();
-        extraClaims.put("purpose", "password_reset");
+        extraClaims.put(PURPOSE_CLAIM, VerifiedToken.PASSWORD_RESET_PURPOSE);
         long resetTokenExpiration = 15 * 60 * 1000;
 
         return Jwts
                 .builder()
+                .setHeaderParam(Header.TYPE, RESET_TOKEN_TYPE)
                 .setClaims(extraClaims)
+                .setId(UUID.randomUUID().toString())
+                .setAudience(RESET_AUDIENCE)
                 .setSubject(email)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + resetTokenExpiration))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .signWith(keyRing.getResetKey(), SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public boolean isResetTokenValid(String token, String email)
     {
-        final Claims claims = extractAllClaims(token);
-        final String tokenEmail = claims.getSubject();
-        final String tokenPurpose = claims.get("purpose", String.class);
-        logger.info("Token email: {}", claims.getSubject());
-        logger.info("Token purpose: {}", claims.get("purpose"));
-        return ("password_reset".equals(tokenPurpose) && email.equals(tokenEmail) && !isTokenExpired(token));
+        return isResetTokenValid(verifyResetToken(token), email);
+    }
 
+    public boolean isResetTokenValid(VerifiedToken token, String email)
+    {
+        logger.atDebug().setMessage("Checking reset token").addKeyValue("jti", token::tokenId).log();
+        return (token.isPasswordReset() && email.equals(token.subject()) && !token.isExpired());
     }
 }
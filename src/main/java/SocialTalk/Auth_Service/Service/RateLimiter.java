@@ -0,0 +1,181 @@
+package SocialTalk.Auth_Service.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class RateLimiter {
+    public static final String LOGIN = "login";
+    public static final String RESEND = "resend";
+    public static final String RESET = "reset";
+    public static final String VERIFY = "verify";
+
+    @Value("${rate-limit.enabled:true}")
+    private boolean enabled;
+    @Value("${rate-limit.login.capacity:10}")
+    private int loginCapacity;
+    @Value("${rate-limit.login.period:PT1M}")
+    private Duration loginPeriod;
+    @Value("${rate-limit.resend.capacity:3}")
+    private int resendCapacity;
+    @Value("${rate-limit.resend.period:PT15M}")
+    private Duration resendPeriod;
+    @Value("${rate-limit.reset.capacity:3}")
+    private int resetCapacity;
+    @Value("${rate-limit.reset.period:PT15M}")
+    private Duration resetPeriod;
+    @Value("${rate-limit.verify.capacity:10}")
+    private int verifyCapacity;
+    @Value("${rate-limit.verify.period:PT15M}")
+    private Duration verifyPeriod;
+    @Value("${rate-limit.max-buckets:100000}")
+    private int maxBuckets;
+
+    private final MeterRegistry meterRegistry;
+    private Ticker ticker = Ticker.systemTicker();
+    private Cache<String, Bucket> buckets;
+    private Map<String, Limit> limits;
+
+    public RateLimiter(MeterRegistry meterRegistry)
+    {
+        this.meterRegistry = meterRegistry;
+    }
+
+    private record Limit(int capacity, long emissionIntervalNanos)
+    {
+        static Limit of(int capacity, Duration period)
+        {
+            return new Limit(capacity, period.toNanos() / Math.max(1, capacity));
+        }
+
+        long burstToleranceNanos()
+        {
+            return emissionIntervalNanos * (capacity - 1L);
+        }
+
+        long periodNanos()
+        {
+            return emissionIntervalNanos * capacity;
+        }
+    }
+
+    @PostConstruct
+    void init()
+    {
+        this.limits = Map.of(
+                LOGIN, Limit.of(loginCapacity, loginPeriod),
+                RESEND, Limit.of(resendCapacity, resendPeriod),
+                RESET, Limit.of(resetCapacity, resetPeriod),
+                VERIFY, Limit.of(verifyCapacity, verifyPeriod)
+        );
+        // Rotating or spoofed addresses must not grow the cache without bound. Past maxBuckets the least useful
+        // buckets are evicted instead of turning new clients away, and a bucket idle for its period is full anyway.
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxBuckets)
+                .expireAfter(new IdleExpiry())
+                .ticker(ticker)
+                .build();
+        Gauge.builder("security.rate-limit.buckets", buckets, Cache::estimatedSize)
+                .register(meterRegistry);
+    }
+
+    public void acquire(String endpoint, String clientAddress, String email)
+    {
+        if (!enabled)
+        {
+            return;
+        }
+        long now = ticker.read();
+        Limit limit = limits.get(endpoint);
+
+        long waitNanos = consume(endpoint + "|ip|" + clientAddress, limit, now);
+        if (waitNanos == 0 && email != null && !email.isBlank())
+        {
+            waitNanos = consume(endpoint + "|email|" + email.trim().toLowerCase(Locale.ROOT), limit, now);
+        }
+        if (waitNanos > 0)
+        {
+            meterRegistry.counter("security.rate-limit.rejected", "endpoint", endpoint).increment();
+            long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+            throw new RateLimitExceededException("Too many requests, please try again later", retryAfterSeconds);
+        }
+    }
+
+    private long consume(String key, Limit limit, long now)
+    {
+        return buckets.get(key, ignored -> new Bucket(limit, now)).tryConsume(now);
+    }
+
+    int bucketCount()
+    {
+        buckets.cleanUp();
+        return (int) buckets.estimatedSize();
+    }
+
+    // GCRA never lets the theoretical arrival run more than one period ahead, so after a period without requests
+    // the bucket is full and dropping it changes nothing
+    private static final class IdleExpiry implements Expiry<String, Bucket> {
+        @Override
+        public long expireAfterCreate(String key, Bucket bucket, long currentTime)
+        {
+            return bucket.limit.periodNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Bucket bucket, long currentTime, long currentDuration)
+        {
+            return bucket.limit.periodNanos();
+        }
+
+        @Override
+        public long expireAfterRead(String key, Bucket bucket, long currentTime, long currentDuration)
+        {
+            return bucket.limit.periodNanos();
+        }
+    }
+
+    // Generic cell rate algorithm: the bucket state is just the theoretical arrival time of the next request,
+    // so consuming a token is one compare-and-set on a long and never takes a lock.
+    private static final class Bucket {
+        private final Limit limit;
+        private final AtomicLong theoreticalArrival;
+
+        private Bucket(Limit limit, long now)
+        {
+            this.limit = limit;
+            this.theoreticalArrival = new AtomicLong(now);
+        }
+
+        // Returns the time to wait, 0 when the request may pass
+        long tryConsume(long now)
+        {
+            while (true)
+            {
+                long current = theoreticalArrival.get();
+                long arrival = current - now > 0 ? current : now;
+                long ahead = arrival - now;
+                if (ahead > limit.burstToleranceNanos())
+                {
+                    return ahead - limit.burstToleranceNanos();
+                }
+                if (theoreticalArrival.compareAndSet(current, arrival + limit.emissionIntervalNanos()))
+                {
+                    return 0;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package SocialTalk.Auth_Service.Service;
+
+import SocialTalk.Auth_Service.Model.RefreshToken;
+import SocialTalk.Auth_Service.Model.User;
+import SocialTalk.Auth_Service.Repository.RefreshTokenRepository;
+import SocialTalk.Auth_Service.Repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+@Service
+public class RefreshTokenService {
+    @Value("${security.refresh-token.expiration:P14D}")
+    private Duration expiration;
+    @Value("${security.refresh-token.family-lifetime:P30D}")
+    private Duration familyLifetime;
+    @Value("${security.refresh-token.cleanup.batch-size:500}")
+    private int cleanupBatchSize;
+    @Value("${security.refresh-token.cleanup.max-batches:20}")
+    private int cleanupMaxBatches;
+
+    private static final int TOKEN_BYTES = 32;
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    public RefreshTokenService(
+            RefreshTokenRepository refreshTokenRepository,
+            UserRepository userRepository,
+            TransactionTemplate transactionTemplate)
+    {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public record IssuedRefreshToken(String token, long expiresIn) {}
+
+    public record Rotation(User user, IssuedRefreshToken refreshToken) {}
+
+    @Transactional
+    public IssuedRefreshToken issue(User user)
+    {
+        LocalDateTime now = LocalDateTime.now();
+        return issue(user.getId(), UUID.randomUUID().toString(), now.plus(familyLifetime), now);
+    }
+
+    @Transactional(noRollbackFor = InvalidRefreshTokenException.class)
+    public Rotation rotate(String rawToken)
+    {
+        LocalDateTime now = LocalDateTime.now();
+        RefreshToken current = refreshTokenRepository.findByTokenHash(TokenDigest.sha256(rawToken))
+                .orElseThrow(() -> new InvalidRefreshTokenException("Invalid refresh token"));
+
+        if (current.isRevoked() || current.getUsedAt() != null)
+        {
+            revokeReusedFamily(current);
+        }
+        if (!current.getExpiresAt().isAfter(now))
+        {
+            throw new InvalidRefreshTokenException("Refresh token has expired");
+        }
+        if (refreshTokenRepository.markUsed(current.getId(), now) != 1)
+        {
+            revokeReusedFamily(current);
+        }
+
+        User user = userRepository.findById(current.getUserId())
+                .filter(User::isEnabled)
+                .orElseThrow(() -> new InvalidRefreshTokenException("Invalid refresh token"));
+
+        IssuedRefreshToken next = issue(user.getId(), current.getFamilyId(), current.getFamilyExpiresAt(), now);
+        return new Rotation(user, next);
+    }
+
+    // Only the owner may end a session, otherwise any logged in user holding a leaked token could revoke it
+    @Transactional
+    public void revoke(String rawToken, Long userId)
+    {
+        refreshTokenRepository.findByTokenHash(TokenDigest.sha256(rawToken))
+                .ifPresent(token -> {
+                    if (!token.getUserId().equals(userId))
+                    {
+                        logger.warn("User {} tried to revoke a refresh token of user {}", userId, token.getUserId());
+                        return;
+                    }
+                    refreshTokenRepository.revokeFamily(token.getFamilyId());
+                });
+    }
+
+    @Transactional
+    public void revokeAll(Long userId)
+    {
+        refreshTokenRepository.revokeAllForUser(userId);
+    }
+
+    @Scheduled(fixedDelayString = "${security.refresh-token.cleanup.interval:PT1H}")
+    public void purgeExpired()
+    {
+        int purged = 0;
+        for (int batch = 0; batch < cleanupMaxBatches; batch++)
+        {
+            Integer deleted = transactionTemplate.execute(status -> {
+                List<Long> ids = refreshTokenRepository.findExpiredIds(LocalDateTime.now(), PageRequest.of(0, cleanupBatchSize));
+                refreshTokenRepository.deleteAllByIdInBatch(ids);
+                return ids.size();
+            });
+            purged += deleted != null ? deleted : 0;
+            if (deleted == null || deleted < cleanupBatchSize)
+            {
+                break;
+            }
+        }
+        if (purged > 0)
+        {
+            logger.info("Purged {} expired refresh tokens", purged);
+        }
+    }
+
+    private void revokeReusedFamily(RefreshToken token)
+    {
+        refreshTokenRepository.revokeFamily(token.getFamilyId());
+        logger.warn("Refresh token reuse detected, revoked token family of user {}", token.getUserId());
+        throw new InvalidRefreshTokenException("Invalid refresh token");
+    }
+
+    private IssuedRefreshToken issue(Long userId, String familyId, LocalDateTime familyExpiresAt, LocalDateTime now)
+    {
+        LocalDateTime expiresAt = now.plus(expiration);
+        if (expiresAt.isAfter(familyExpiresAt))
+        {
+            expiresAt = familyExpiresAt;
+        }
+
+        byte[] tokenBytes = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(tokenBytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(tokenBytes);
+
+        refreshTokenRepository.save(new RefreshToken(TokenDigest.sha256(rawToken), familyId, userId, expiresAt, familyExpiresAt));
+        return new IssuedRefreshToken(rawToken, Duration.between(now, expiresAt).toMillis());
+    }
+}
@@ -0,0 +1,4 @@
+package SocialTalk.Auth_Service.Service;
+
+public record RenderedEmail(String subject, String htmlBody, String textBody) {
+}
@@ -0,0 +1,97 @@
+package SocialTalk.Auth_Service.Service;
+
+import SocialTalk.Auth_Service.Model.SecurityVersionChange;
+import SocialTalk.Auth_Service.Repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Latest security version of every user whose credentials changed within the lifetime of a token. Changes are read
+ * from users.security_version_changed_at every reload-interval, so a password reset on one instance reaches the
+ * others, and an instance that restarts, within that interval.
+ */
+@Service
+public class SecurityVersionRegistry {
+    @Value("${security.jwt.expiration-time}")
+    private long jwtExpiration;
+    @Value("${security.jwt.security-version.max-size:100000}")
+    private long maxSize;
+    // Re-reads changes this far behind the newest one seen, for transactions that commit out of order and clock skew
+    @Value("${security.jwt.security-version.reload-overlap:PT1M}")
+    private Duration reloadOverlap;
+
+    private final UserRepository userRepository;
+    private Cache<Long, Integer> versions;
+    private volatile LocalDateTime watermark;
+
+    public SecurityVersionRegistry(UserRepository userRepository)
+    {
+        this.userRepository = userRepository;
+    }
+
+    @PostConstruct
+    void init()
+    {
+        // A bumped version only has to be remembered for as long as an older token can still be alive.
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(jwtExpiration))
+                .build();
+        this.watermark = LocalDateTime.now().minus(Duration.ofMillis(jwtExpiration));
+        reload();
+    }
+
+    @Scheduled(
+            initialDelayString = "${security.jwt.security-version.reload-interval:PT5S}",
+            fixedDelayString = "${security.jwt.security-version.reload-interval:PT5S}")
+    public void reload()
+    {
+        LocalDateTime newest = watermark;
+        for (SecurityVersionChange change : userRepository.findSecurityVersionChangesSince(newest.minus(reloadOverlap)))
+        {
+            remember(change.userId(), change.securityVersion());
+            if (change.changedAt().isAfter(newest))
+            {
+                newest = change.changedAt();
+            }
+        }
+        this.watermark = newest;
+    }
+
+    public void recordChange(Long userId, int securityVersion)
+    {
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit()
+                {
+                    remember(userId, securityVersion);
+                }
+            });
+        } else
+        {
+            remember(userId, securityVersion);
+        }
+    }
+
+    private void remember(Long userId, int securityVersion)
+    {
+        versions.asMap().merge(userId, securityVersion, Math::max);
+    }
+
+    public boolean isCurrent(Long userId, int securityVersion)
+    {
+        Integer known = versions.getIfPresent(userId);
+        return known == null || securityVersion >= known;
+    }
+}
@@ -0,0 +1,144 @@
+package SocialTalk.Auth_Service.Service;
+
+import SocialTalk.Auth_Service.Responses.IntrospectionResponse;
+import SocialTalk.Auth_Service.Responses.IntrospectionResult;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+public class TokenIntrospectionService {
+    @Value("${security.jwt.introspection.max-batch-size:100}")
+    private int maxBatchSize;
+    @Value("${security.jwt.introspection.cache.max-size:50000}")
+    private long maxCacheSize;
+    @Value("${security.jwt.introspection.cache.invalid-ttl:PT1M}")
+    private Duration invalidTtl;
+    @Value("${security.jwt.introspection.cache.invalid-max-size:5000}")
+    private long maxInvalidCacheSize;
+
+    private final JwtService jwtService;
+    private final TokenRevocationService tokenRevocationService;
+    private final SecurityVersionRegistry securityVersionRegistry;
+    private final MeterRegistry meterRegistry;
+    private Cache<String, VerifiedToken> verified;
+    // Kept apart so a flood of junk tokens can only evict other junk, never a verified token
+    private Cache<String, Boolean> invalid;
+
+    public TokenIntrospectionService(
+            JwtService jwtService,
+            TokenRevocationService tokenRevocationService,
+            SecurityVersionRegistry securityVersionRegistry,
+            MeterRegistry meterRegistry)
+    {
+        this.jwtService = jwtService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.securityVersionRegistry = securityVersionRegistry;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void init()
+    {
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(maxCacheSize)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+        this.invalid = Caffeine.newBuilder()
+                .maximumSize(maxInvalidCacheSize)
+                .expireAfterWrite(invalidTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verified, "jwt.introspection");
+        CaffeineCacheMetrics.monitor(meterRegistry, invalid, "jwt.introspection.invalid");
+    }
+
+    public IntrospectionResponse introspect(List<String> tokens)
+    {
+        if (tokens.size() > maxBatchSize)
+        {
+            throw new IllegalArgumentException("At most " + maxBatchSize + " tokens can be introspected at once");
+        }
+        List<IntrospectionResult> results = new ArrayList<>(tokens.size());
+        for (String token : tokens)
+        {
+            results.add(introspect(token));
+        }
+        return new IntrospectionResponse(results);
+    }
+
+    public IntrospectionResult introspect(String token)
+    {
+        if (token == null || token.isBlank())
+        {
+            return IntrospectionResult.INACTIVE;
+        }
+        // Only the signature check is cached, revocation and password changes are checked on every call
+        String digest = TokenDigest.sha256(token);
+        if (invalid.getIfPresent(digest) != null)
+        {
+            return IntrospectionResult.INACTIVE;
+        }
+        VerifiedToken verifiedToken = verified.get(digest, key -> verify(token));
+        if (verifiedToken == null)
+        {
+            invalid.put(digest, Boolean.TRUE);
+            return IntrospectionResult.INACTIVE;
+        }
+        return isActive(verifiedToken) ? IntrospectionResult.active(verifiedToken) : IntrospectionResult.INACTIVE;
+    }
+
+    // null is not cached by Caffeine, invalid tokens go to their own cache instead
+    private VerifiedToken verify(String token)
+    {
+        try {
+            VerifiedToken verifiedToken = jwtService.verify(token);
+            return verifiedToken.expiresAt() != null ? verifiedToken : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private boolean isActive(VerifiedToken token)
+    {
+        return token != null
+                && token.subject() != null
+                && !token.isExpired()
+                && !token.isPasswordReset()
+                && !Boolean.FALSE.equals(token.enabled())
+                && (token.userId() == null || securityVersionRegistry.isCurrent(token.userId(), token.securityVersion()))
+                && !tokenRevocationService.isRevoked(token);
+    }
+
+    private static class TokenExpiry implements Expiry<String, VerifiedToken> {
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken value, long currentTime)
+        {
+            Duration remaining = Duration.between(Instant.now(), value.expiresAt());
+            return Math.max(0, remaining.toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration)
+        {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration)
+        {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package SocialTalk.Auth_Service.Service;
+
+import SocialTalk.Auth_Service.Model.RevokedToken;
+import SocialTalk.Auth_Service.Repository.RevokedTokenRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class TokenRevocationService {
+    @Value("${security.jwt.revocation.cleanup.batch-size:500}")
+    private int cleanupBatchSize;
+    // Re-reads revocations this far behind the newest one seen, for transactions that commit out of order and clock skew
+    @Value("${security.jwt.revocation.reload-overlap:PT1M}")
+    private Duration reloadOverlap;
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final MeterRegistry meterRegistry;
+    // One map for the lifetime of the service: reloads merge into it, so a local revocation can never land in a copy
+    private final Map<String, Instant> revoked = new ConcurrentHashMap<>();
+    private volatile LocalDateTime watermark;
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository, MeterRegistry meterRegistry)
+    {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void init()
+    {
+        Gauge.builder("security.jwt.revoked", revoked, Map::size)
+                .register(meterRegistry);
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime newest = now;
+        for (RevokedToken revokedToken : revokedTokenRepository.findActive(now))
+        {
+            newest = merge(revokedToken, newest);
+        }
+        this.watermark = newest;
+    }
+
+    public boolean isRevoked(VerifiedToken token)
+    {
+        String tokenId = token.tokenId();
+        if (tokenId == null)
+        {
+            return false;
+        }
+        Instant expiresAt = revoked.get(tokenId);
+        return expiresAt != null && expiresAt.isAfter(Instant.now());
+    }
+
+    @Transactional
+    public void revoke(VerifiedToken token)
+    {
+        if (token.tokenId() == null || token.expiresAt() == null || token.isExpired())
+        {
+            return;
+        }
+        revokedTokenRepository.save(new RevokedToken(
+                token.tokenId(),
+                LocalDateTime.ofInstant(token.expiresAt(), ZoneId.systemDefault())));
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit()
+                {
+                    revoked.put(token.tokenId(), token.expiresAt());
+                }
+            });
+        } else
+        {
+            revoked.put(token.tokenId(), token.expiresAt());
+        }
+    }
+
+    @Scheduled(
+            initialDelayString = "${security.jwt.revocation.reload-interval:PT30S}",
+            fixedDelayString = "${security.jwt.revocation.reload-interval:PT30S}")
+    public void reload()
+    {
+        LocalDateTime newest = watermark;
+        for (RevokedToken revokedToken : revokedTokenRepository.findRevokedSince(newest.minus(reloadOverlap), LocalDateTime.now()))
+        {
+            newest = merge(revokedToken, newest);
+        }
+        this.watermark = newest;
+
+        Instant now = Instant.now();
+        revoked.values().removeIf(expiresAt -> !expiresAt.isAfter(now));
+
+        List<String> expiredIds = revokedTokenRepository.findExpiredIds(LocalDateTime.now(), PageRequest.of(0, cleanupBatchSize));
+        if (!expiredIds.isEmpty())
+        {
+            revokedTokenRepository.deleteAllByIdInBatch(expiredIds);
+            logger.debug("Removed {} expired token revocations", expiredIds.size());
+        }
+    }
+
+    private LocalDateTime merge(RevokedToken revokedToken, LocalDateTime newest)
+    {
+        revoked.put(revokedToken.getTokenId(), revokedToken.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant());
+        return revokedToken.getRevokedAt().isAfter(newest) ? revokedToken.getRevokedAt() : newest;
+    }
+}
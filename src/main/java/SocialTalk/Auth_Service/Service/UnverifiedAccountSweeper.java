@@ -0,0 +1,144 @@
+package SocialTalk.Auth_Service.Service;
+
+import SocialTalk.Auth_Service.Model.EmailOutboxStatus;
+import SocialTalk.Auth_Service.Repository.EmailOutboxRepository;
+import SocialTalk.Auth_Service.Repository.UserRepository;
+import SocialTalk.Auth_Service.Repository.VerificationCodeRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+@Service
+public class UnverifiedAccountSweeper {
+    @Value("${users.sweeper.enabled:true}")
+    private boolean enabled;
+    @Value("${users.sweeper.unverified-retention:P7D}")
+    private Duration unverifiedRetention;
+    @Value("${users.sweeper.batch-size:200}")
+    private int batchSize;
+    @Value("${users.sweeper.max-batches:50}")
+    private int maxBatches;
+    @Value("${users.sweeper.pause:PT0.2S}")
+    private Duration pause;
+    @Value("${email.outbox.retention:P7D}")
+    private Duration outboxRetention;
+
+    private static final Set<EmailOutboxStatus> FINISHED = EnumSet.of(
+            EmailOutboxStatus.SENT, EmailOutboxStatus.DEAD, EmailOutboxStatus.EXPIRED);
+
+    private static final Logger logger = LoggerFactory.getLogger(UnverifiedAccountSweeper.class);
+
+    private final UserRepository userRepository;
+    private final VerificationCodeRepository verificationCodeRepository;
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter accountsDeleted;
+    private final Counter codesDeleted;
+    private final Counter emailsDeleted;
+    private final Timer batchTimer;
+
+    public UnverifiedAccountSweeper(
+            UserRepository userRepository,
+            VerificationCodeRepository verificationCodeRepository,
+            EmailOutboxRepository emailOutboxRepository,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry)
+    {
+        this.userRepository = userRepository;
+        this.verificationCodeRepository = verificationCodeRepository;
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.accountsDeleted = meterRegistry.counter("users.sweeper.deleted", "type", "unverified_account");
+        this.codesDeleted = meterRegistry.counter("users.sweeper.deleted", "type", "expired_code");
+        this.emailsDeleted = meterRegistry.counter("users.sweeper.deleted", "type", "finished_email");
+        this.batchTimer = Timer.builder("users.sweeper.batch")
+                .description("Time spent in one delete transaction of the sweeper")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(
+            initialDelayString = "${users.sweeper.initial-delay:PT5M}",
+            fixedDelayString = "${users.sweeper.interval:PT1H}")
+    public void sweep()
+    {
+        if (!enabled)
+        {
+            return;
+        }
+        int codes = sweepInBatches(codesDeleted, () -> {
+            List<Long> ids = verificationCodeRepository.findExpiredIds(LocalDateTime.now(), PageRequest.of(0, batchSize));
+            verificationCodeRepository.deleteAllByIdInBatch(ids);
+            return ids.size();
+        });
+        int accounts = sweepInBatches(accountsDeleted, () -> {
+            LocalDateTime cutoff = LocalDateTime.now().minus(unverifiedRetention);
+            List<Long> ids = userRepository.findUnverifiedIdsCreatedBefore(cutoff, PageRequest.of(0, batchSize));
+            if (ids.isEmpty())
+            {
+                return 0;
+            }
+            verificationCodeRepository.deleteByUserIdIn(ids);
+            return userRepository.deleteUnverifiedByIdIn(ids);
+        });
+        Integer expired = transactionTemplate.execute(status -> emailOutboxRepository.expirePending(
+                EmailOutboxStatus.PENDING, EmailOutboxStatus.EXPIRED, LocalDateTime.now()));
+        if (expired != null && expired > 0)
+        {
+            logger.info("Cleared {} queued emails whose content expired before delivery", expired);
+        }
+        int emails = sweepInBatches(emailsDeleted, () -> {
+            LocalDateTime cutoff = LocalDateTime.now().minus(outboxRetention);
+            List<Long> ids = emailOutboxRepository.findFinishedIdsBefore(FINISHED, cutoff, PageRequest.of(0, batchSize));
+            return ids.isEmpty() ? 0 : emailOutboxRepository.deleteByIdIn(ids);
+        });
+        if (codes > 0 || accounts > 0 || emails > 0)
+        {
+            logger.info("Removed {} unverified accounts, {} expired verification codes and {} sent or dead emails",
+                    accounts, codes, emails);
+        }
+    }
+
+    // Each batch is its own short transaction, with a pause in between so the sweeper never holds locks for long
+    // or keeps the database busy with back to back deletes.
+    private int sweepInBatches(Counter deleted, Supplier<Integer> batch)
+    {
+        int total = 0;
+        for (int i = 0; i < maxBatches; i++)
+        {
+            Integer count = batchTimer.record(() -> transactionTemplate.execute(status -> batch.get()));
+            int processed = count != null ? count : 0;
+            deleted.increment(processed);
+            total += processed;
+            if (processed < batchSize || !pause())
+            {
+                break;
+            }
+        }
+        return total;
+    }
+
+    private boolean pause()
+    {
+        try {
+            Thread.sleep(pause.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -1,17 +1,31 @@
 package SocialTalk.Auth_Service.Service;
 
 import org.slf4j.Logger;
-import SocialTalk.Auth_Service.Model.User;
+import SocialTalk.Auth_Service.Responses.UserBatchResponse;
+import SocialTalk.Auth_Service.Responses.UserSummary;
 import SocialTalk.Auth_Service.Repository.UserRepository;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class UserService {
+    @Value("${users.page.default-size:50}")
+    private int defaultPageSize;
+    @Value("${users.page.max-size:200}")
+    private int maxPageSize;
+    @Value("${users.batch.max-size:100}")
+    private int maxBatchSize;
 
     private final UserRepository userRepository;
     private static final Logger logger = LoggerFactory.getLogger(UserService.class);
@@ -22,17 +36,63 @@ public class UserService {
     }
 
 
-    public List<User> allUsers() {
-        List<User> users = new ArrayList<>();
-        userRepository.findAll().forEach(users::add);
-        return users;
+    public int pageSize(Integer requested) {
+        if (requested == null || requested <= 0) {
+            return Math.min(defaultPageSize, maxPageSize);
+        }
+        return Math.min(requested, maxPageSize);
+    }
+
+    @Transactional(readOnly = true)
+    public List<UserSummary> usersAfter(Long after, int pageSize) {
+        long cursor = after != null ? after : 0L;
+        return userRepository.findSummariesAfter(cursor, PageRequest.of(0, pageSize));
+    }
+
+    @Transactional(readOnly = true)
+    public UserBatchResponse getUsers(List<Long> ids) {
+        // Checked on the raw list, duplicates and nulls still cost a pass over the body
+        if (ids.size() > maxBatchSize) {
+            throw new IllegalArgumentException("At most " + maxBatchSize + " user IDs can be requested at once");
+        }
+        Set<Long> requestedIds = new LinkedHashSet<>();
+        for (Long id : ids) {
+            if (id != null) {
+                requestedIds.add(id);
+            }
+        }
+        if (requestedIds.isEmpty()) {
+            return new UserBatchResponse(List.of(), List.of());
+        }
+
+        Map<Long, UserSummary> found = new HashMap<>();
+        for (UserSummary user : userRepository.findSummariesByIdIn(requestedIds)) {
+            found.put(user.id(), user);
+        }
+
+        List<UserSummary> users = new ArrayList<>(found.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : requestedIds) {
+            UserSummary user = found.get(id);
+            if (user != null) {
+                users.add(user);
+            } else {
+                missing.add(id);
+            }
+        }
+        logger.debug("Service: Batch lookup of {} users, {} missing", requestedIds.size(), missing.size());
+        return new UserBatchResponse(users, missing);
     }
 
-    public Optional<User> getUser(Long id) {
+    @Transactional(readOnly = true)
+    public Optional<UserSummary> getUser(Long id) {
         try {
-            logger.info("Service: Looking up user with ID: {}", id);
-            Optional<User> user = userRepository.findById(id);
-            logger.info("Service: User found: {}, Details: {}", user.isPresent(), user.orElse(null));
+            Optional<UserSummary> user = userRepository.findSummaryById(id);
+            logger.atDebug()
+                    .setMessage("Service: User lookup, found: {}")
+                    .addArgument(user::isPresent)
+                    .addKeyValue("userId", id)
+                    .log();
             return user;
         } catch (Exception e) {
             logger.error("Service: Error fetching user with ID {}: {}", id, e.getMessage(), e);
@@ -0,0 +1,121 @@
+package SocialTalk.Auth_Service.Service;
+
+import SocialTalk.Auth_Service.Model.VerificationCode;
+import SocialTalk.Auth_Service.Model.VerificationPurpose;
+import SocialTalk.Auth_Service.Repository.VerificationCodeRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Optional;
+
+@Service
+public class VerificationCodeService {
+    @Value("${security.verification-code.max-attempts:5}")
+    private int maxAttempts;
+    @Value("${security.verification-code.pepper:}")
+    private String pepper;
+    @Value("${security.verification-code.allow-unpeppered:false}")
+    private boolean allowUnpeppered;
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final Logger logger = LoggerFactory.getLogger(VerificationCodeService.class);
+
+    private final VerificationCodeRepository verificationCodeRepository;
+    private final SecureRandom secureRandom = new SecureRandom();
+    private SecretKeySpec pepperKey;
+
+    public VerificationCodeService(VerificationCodeRepository verificationCodeRepository)
+    {
+        this.verificationCodeRepository = verificationCodeRepository;
+    }
+
+    public enum Outcome {
+        VERIFIED, INVALID, EXPIRED, MISSING, TOO_MANY_ATTEMPTS
+    }
+
+    @PostConstruct
+    void init()
+    {
+        if (pepper == null || pepper.isBlank())
+        {
+            // Six digits are cheap to brute force, a keyed hash keeps a leaked table from revealing the codes
+            if (!allowUnpeppered)
+            {
+                throw new IllegalStateException("security.verification-code.pepper is required, "
+                        + "set security.verification-code.allow-unpeppered=true to hash verification codes without a key");
+            }
+            logger.warn("security.verification-code.pepper is not set, verification codes are hashed without a key");
+            return;
+        }
+        this.pepperKey = new SecretKeySpec(pepper.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+    }
+
+    @Transactional
+    public String issue(Long userId, VerificationPurpose purpose, Duration ttl)
+    {
+        String code = String.valueOf(100000 + secureRandom.nextInt(900000));
+        LocalDateTime now = LocalDateTime.now();
+
+        verificationCodeRepository.upsert(userId, purpose.name(), hash(userId, purpose, code), now.plus(ttl), now);
+        return code;
+    }
+
+    @Transactional
+    public Outcome check(Long userId, VerificationPurpose purpose, String code)
+    {
+        Optional<VerificationCode> stored = verificationCodeRepository.findByUserIdAndPurpose(userId, purpose);
+        if (stored.isEmpty())
+        {
+            return Outcome.MISSING;
+        }
+        VerificationCode verificationCode = stored.get();
+        if (!verificationCode.getExpiresAt().isAfter(LocalDateTime.now()))
+        {
+            return Outcome.EXPIRED;
+        }
+        // Reserve the guess before comparing, so parallel requests cannot all guess against the same attempt count
+        if (verificationCodeRepository.reserveAttempt(verificationCode.getId(), maxAttempts) == 0)
+        {
+            return Outcome.TOO_MANY_ATTEMPTS;
+        }
+
+        byte[] expected = verificationCode.getCodeHash().getBytes(StandardCharsets.US_ASCII);
+        byte[] actual = hash(userId, purpose, code == null ? "" : code).getBytes(StandardCharsets.US_ASCII);
+        if (!MessageDigest.isEqual(expected, actual))
+        {
+            return Outcome.INVALID;
+        }
+        verificationCodeRepository.delete(verificationCode);
+        return Outcome.VERIFIED;
+    }
+
+    private String hash(Long userId, VerificationPurpose purpose, String code)
+    {
+        String value = userId + ":" + purpose.name() + ":" + code;
+        if (pepperKey == null)
+        {
+            return TokenDigest.sha256(value);
+        }
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(pepperKey);
+            byte[] digest = mac.doFinal(value.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+}
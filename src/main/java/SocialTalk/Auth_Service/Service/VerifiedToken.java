@@ -0,0 +1,32 @@
+package SocialTalk.Auth_Service.Service;
+
+import java.time.Instant;
+
+public record VerifiedToken(
+        String tokenId,
+        String subject,
+        Long userId,
+        String email,
+        String username,
+        Boolean enabled,
+        int securityVersion,
+        Instant expiresAt,
+        String purpose)
+{
+    public static final String PASSWORD_RESET_PURPOSE = "password_reset";
+
+    public boolean isExpired()
+    {
+        return expiresAt != null && !expiresAt.isAfter(Instant.now());
+    }
+
+    public boolean isPasswordReset()
+    {
+        return PASSWORD_RESET_PURPOSE.equals(purpose);
+    }
+
+    public boolean hasPrincipalClaims()
+    {
+        return userId != null && email != null && username != null && enabled != null;
+    }
+}
@@ -0,0 +1,109 @@
+package SocialTalk.Auth_Service.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+
+@Service
+public class VerifiedTokenCache {
+    @Value("${security.jwt.cache.enabled:true}")
+    private boolean enabled;
+    @Value("${security.jwt.cache.max-size:10000}")
+    private long maxSize;
+
+    private final MeterRegistry meterRegistry;
+    private Cache<String, CachedAuthentication> cache;
+
+    public VerifiedTokenCache(MeterRegistry meterRegistry)
+    {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public record CachedAuthentication(VerifiedToken token, UserDetails userDetails) {}
+
+    @PostConstruct
+    void init()
+    {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.verifiedTokens");
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public CachedAuthentication get(String jwt)
+    {
+        if (!enabled)
+        {
+            return null;
+        }
+        CachedAuthentication cached = cache.getIfPresent(TokenDigest.sha256(jwt));
+        if (cached == null || cached.token().isExpired())
+        {
+            return null;
+        }
+        return cached;
+    }
+
+    public void put(String jwt, VerifiedToken token, UserDetails userDetails)
+    {
+        if (!enabled || token.expiresAt() == null)
+        {
+            return;
+        }
+        cache.put(TokenDigest.sha256(jwt), new CachedAuthentication(token, userDetails));
+    }
+
+    public void invalidateUser(String username)
+    {
+        cache.asMap().values().removeIf(cached -> username.equals(cached.userDetails().getUsername()));
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status)
+                {
+                    cache.asMap().values().removeIf(cached -> username.equals(cached.userDetails().getUsername()));
+                }
+            });
+        }
+    }
+
+    private static class TokenExpiry implements Expiry<String, CachedAuthentication> {
+        @Override
+        public long expireAfterCreate(String key, CachedAuthentication value, long currentTime)
+        {
+            Duration remaining = Duration.between(Instant.now(), value.token().expiresAt());
+            return Math.max(0, remaining.toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedAuthentication value, long currentTime, long currentDuration)
+        {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedAuthentication value, long currentTime, long currentDuration)
+        {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package SocialTalk.Auth_Service.Controller;
+
+import SocialTalk.Auth_Service.Config.JwtAuthenticationFilter;
+import SocialTalk.Auth_Service.Config.ServiceClientSecurityConfiguration;
+import SocialTalk.Auth_Service.Responses.IntrospectionResponse;
+import SocialTalk.Auth_Service.Responses.IntrospectionResult;
+import SocialTalk.Auth_Service.Service.TokenIntrospectionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(
+        controllers = TokenIntrospectionController.class,
+        excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = JwtAuthenticationFilter.class),
+        properties = {
+                "security.clients.introspection.id=gateway",
+                "security.clients.introspection.secret=introspection-secret",
+                "security.clients.metrics.id=prometheus",
+                "security.clients.metrics.secret=metrics-secret"
+        })
+@Import(ServiceClientSecurityConfiguration.class)
+class TokenIntrospectionControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private TokenIntrospectionService tokenIntrospectionService;
+
+    private static MockHttpServletRequestBuilder introspect()
+    {
+        return post("/auth/introspect")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"tokens\":[\"token\"]}");
+    }
+
+    @Test
+    void rejectsRequestsWithoutClientCredentials() throws Exception
+    {
+        mockMvc.perform(introspect())
+                .andExpect(status().isUnauthorized());
+
+        verify(tokenIntrospectionService, never()).introspect(anyList());
+    }
+
+    @Test
+    void rejectsAWrongClientSecret() throws Exception
+    {
+        mockMvc.perform(introspect().with(httpBasic("gateway", "wrong-secret")))
+                .andExpect(status().isUnauthorized());
+
+        verify(tokenIntrospectionService, never()).introspect(anyList());
+    }
+
+    @Test
+    void rejectsClientsWithoutTheIntrospectionRole() throws Exception
+    {
+        mockMvc.perform(introspect().with(httpBasic("prometheus", "metrics-secret")))
+                .andExpect(status().isForbidden());
+
+        verify(tokenIntrospectionService, never()).introspect(anyList());
+    }
+
+    @Test
+    void introspectsForTheIntrospectionClient() throws Exception
+    {
+        when(tokenIntrospectionService.introspect(anyList()))
+                .thenReturn(new IntrospectionResponse(List.of(IntrospectionResult.INACTIVE)));
+
+        mockMvc.perform(introspect().with(httpBasic("gateway", "introspection-secret")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].active").value(false));
+    }
+}
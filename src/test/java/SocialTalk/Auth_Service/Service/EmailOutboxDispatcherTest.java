@@ -0,0 +1,203 @@
+package SocialTalk.Auth_Service.Service;
+
+import SocialTalk.Auth_Service.Model.EmailOutboxMessage;
+import SocialTalk.Auth_Service.Model.EmailOutboxStatus;
+import SocialTalk.Auth_Service.Repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EmailOutboxDispatcherTest {
+    private static final int WORKERS = 2;
+    private static final int MESSAGES_PER_CONNECTION = 2;
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final EmailOutboxRepository repository = mock(EmailOutboxRepository.class);
+    private final EmailService emailService = mock(EmailService.class);
+    private final ThreadPoolExecutor executor = mock(ThreadPoolExecutor.class);
+
+    private EmailOutboxDispatcher dispatcher(int freeQueueSlots, int activeWorkers)
+    {
+        EmailOutboxDispatcher dispatcher = new EmailOutboxDispatcher(repository, emailService, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(dispatcher, "workers", WORKERS);
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 50);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", MAX_ATTEMPTS);
+        ReflectionTestUtils.setField(dispatcher, "initialBackoff", Duration.ofSeconds(10));
+        ReflectionTestUtils.setField(dispatcher, "maxBackoff", Duration.ofMinutes(30));
+        ReflectionTestUtils.setField(dispatcher, "lease", Duration.ofMinutes(2));
+        ReflectionTestUtils.setField(dispatcher, "messagesPerConnection", MESSAGES_PER_CONNECTION);
+        ReflectionTestUtils.setField(dispatcher, "deliveryExecutor", executor);
+
+        @SuppressWarnings("unchecked")
+        BlockingQueue<Runnable> queue = mock(BlockingQueue.class);
+        when(queue.remainingCapacity()).thenReturn(freeQueueSlots);
+        when(executor.getQueue()).thenReturn(queue);
+        when(executor.getActiveCount()).thenReturn(activeWorkers);
+        return dispatcher;
+    }
+
+    private EmailOutboxMessage claimedMessage(long id, int attempts, LocalDateTime leaseUntil)
+    {
+        return claimedMessage(id, attempts, leaseUntil, null);
+    }
+
+    private EmailOutboxMessage claimedMessage(long id, int attempts, LocalDateTime leaseUntil, LocalDateTime expiresAt)
+    {
+        EmailOutboxMessage message = new EmailOutboxMessage("user@example.com", "Subject", "<p>123456</p>", "123456", expiresAt);
+        message.setId(id);
+        message.setStatus(EmailOutboxStatus.SENDING);
+        message.setAttempts(attempts);
+        message.setNextAttemptAt(leaseUntil);
+        return message;
+    }
+
+    @Test
+    void claimsOnlyWhatTheFreeWorkersCanTake()
+    {
+        // One free queue slot and one idle worker: two connections of two messages each
+        EmailOutboxDispatcher dispatcher = dispatcher(1, WORKERS - 1);
+        when(repository.findDueIds(any(), any(), any())).thenReturn(List.of());
+
+        dispatcher.dispatchDueMessages();
+
+        ArgumentCaptor<Pageable> page = ArgumentCaptor.forClass(Pageable.class);
+        verify(repository).findDueIds(any(), any(), page.capture());
+        assertEquals(2 * MESSAGES_PER_CONNECTION, page.getValue().getPageSize());
+    }
+
+    @Test
+    void claimsNothingWhileTheWorkersAreBusy()
+    {
+        EmailOutboxDispatcher dispatcher = dispatcher(0, WORKERS);
+
+        dispatcher.dispatchDueMessages();
+
+        verify(repository, never()).findDueIds(any(), any(), any());
+        verify(repository, never()).claim(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void releasesClaimedMessagesTheWorkersRejected()
+    {
+        EmailOutboxDispatcher dispatcher = dispatcher(1, WORKERS - 1);
+        when(repository.findDueIds(any(), any(), any())).thenReturn(List.of(1L, 2L, 3L, 4L));
+        when(repository.claim(any(), any(), any(), any(), any())).thenReturn(1);
+        doNothing()
+                .doThrow(new RejectedExecutionException("saturated"))
+                .when(executor).execute(any());
+
+        dispatcher.dispatchDueMessages();
+
+        verify(executor, times(2)).execute(any());
+        verify(repository).release(eq(List.of(3L, 4L)), eq(EmailOutboxStatus.SENDING), eq(EmailOutboxStatus.PENDING), any());
+    }
+
+    @Test
+    void retriesWithExponentialBackoffUnderTheClaim() throws Exception
+    {
+        EmailOutboxDispatcher dispatcher = dispatcher(1, 0);
+        LocalDateTime leaseUntil = LocalDateTime.now().plusMinutes(2).truncatedTo(ChronoUnit.SECONDS);
+        when(repository.findAllById(List.of(1L))).thenReturn(List.of(claimedMessage(1L, 2, leaseUntil)));
+        when(emailService.createMessage(any(), any(), any(), any())).thenReturn(mock(MimeMessage.class));
+        when(emailService.sendBatch(anyList(), anyLong())).thenReturn(List.<Exception>of(new MessagingException("421 try later")));
+        when(repository.markRetry(any(), any(), any(), any(), any(), any())).thenReturn(1);
+
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher.deliver(List.of(1L), leaseUntil, System.nanoTime());
+        LocalDateTime after = LocalDateTime.now();
+
+        // Second attempt: twice the initial backoff
+        ArgumentCaptor<LocalDateTime> nextAttemptAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(repository).markRetry(eq(1L), eq(EmailOutboxStatus.SENDING), eq(leaseUntil), eq(EmailOutboxStatus.PENDING),
+                nextAttemptAt.capture(), eq("421 try later"));
+        assertFalse(nextAttemptAt.getValue().isBefore(before.plusSeconds(20)));
+        assertFalse(nextAttemptAt.getValue().isAfter(after.plusSeconds(20)));
+        verify(repository, never()).markDead(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void movesToDeadAfterTheLastAttempt() throws Exception
+    {
+        EmailOutboxDispatcher dispatcher = dispatcher(1, 0);
+        LocalDateTime leaseUntil = LocalDateTime.now().plusMinutes(2).truncatedTo(ChronoUnit.SECONDS);
+        when(repository.findAllById(List.of(1L))).thenReturn(List.of(claimedMessage(1L, MAX_ATTEMPTS, leaseUntil)));
+        when(emailService.createMessage(any(), any(), any(), any())).thenReturn(mock(MimeMessage.class));
+        when(emailService.sendBatch(anyList(), anyLong())).thenReturn(List.<Exception>of(new MessagingException("550 rejected")));
+
+        dispatcher.deliver(List.of(1L), leaseUntil, System.nanoTime());
+
+        verify(repository).markDead(eq(1L), eq(EmailOutboxStatus.SENDING), eq(leaseUntil), eq(EmailOutboxStatus.DEAD),
+                any(), eq("550 rejected"));
+        verify(repository, never()).markRetry(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void skipsMessagesClaimedAgainAfterTheLeaseRanOut() throws Exception
+    {
+        EmailOutboxDispatcher dispatcher = dispatcher(1, 0);
+        LocalDateTime leaseUntil = LocalDateTime.now().plusMinutes(2).truncatedTo(ChronoUnit.SECONDS);
+        EmailOutboxMessage reclaimed = claimedMessage(1L, 2, leaseUntil.plusMinutes(2));
+        when(repository.findAllById(List.of(1L))).thenReturn(List.of(reclaimed));
+
+        dispatcher.deliver(List.of(1L), leaseUntil, System.nanoTime());
+
+        verify(emailService, never()).sendBatch(anyList(), anyLong());
+        verify(repository, never()).markSent(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void marksSentMessagesUnderTheClaim() throws Exception
+    {
+        EmailOutboxDispatcher dispatcher = dispatcher(1, 0);
+        LocalDateTime leaseUntil = LocalDateTime.now().plusMinutes(2).truncatedTo(ChronoUnit.SECONDS);
+        when(repository.findAllById(List.of(1L))).thenReturn(List.of(claimedMessage(1L, 1, leaseUntil)));
+        when(emailService.createMessage(any(), any(), any(), any())).thenReturn(mock(MimeMessage.class));
+        when(emailService.sendBatch(anyList(), anyLong())).thenReturn(Collections.singletonList(null));
+        when(repository.markSent(any(), any(), any(), any(), any())).thenReturn(1);
+
+        dispatcher.deliver(List.of(1L), leaseUntil, System.nanoTime());
+
+        verify(repository).markSent(eq(1L), eq(EmailOutboxStatus.SENDING), eq(leaseUntil), eq(EmailOutboxStatus.SENT), any());
+    }
+
+    @Test
+    void dropsMessagesWhoseContentExpiredInsteadOfSendingThem() throws Exception
+    {
+        EmailOutboxDispatcher dispatcher = dispatcher(1, 0);
+        LocalDateTime leaseUntil = LocalDateTime.now().plusMinutes(2).truncatedTo(ChronoUnit.SECONDS);
+        EmailOutboxMessage expired = claimedMessage(1L, 1, leaseUntil, LocalDateTime.now().minusMinutes(1));
+        when(repository.findAllById(List.of(1L))).thenReturn(List.of(expired));
+
+        dispatcher.deliver(List.of(1L), leaseUntil, System.nanoTime());
+
+        verify(repository).markExpired(eq(1L), eq(EmailOutboxStatus.SENDING), eq(leaseUntil), eq(EmailOutboxStatus.EXPIRED), any());
+        verify(emailService, never()).createMessage(any(), any(), any(), any());
+        verify(repository, never()).markSent(any(), any(), any(), any(), any());
+    }
+}
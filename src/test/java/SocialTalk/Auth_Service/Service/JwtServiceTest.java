@@ -0,0 +1,143 @@
+package SocialTalk.Auth_Service.Service;
+
+import SocialTalk.Auth_Service.Model.User;
+import io.jsonwebtoken.Header;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtServiceTest {
+    private static final String EMAIL = "user@example.com";
+
+    private static String randomSecret()
+    {
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        return Base64.getEncoder().encodeToString(secret);
+    }
+
+    private static JwtKeyRing keyRing(String algorithm, String secretKey, String resetSecretKey)
+    {
+        JwtKeyRing keyRing = new JwtKeyRing(new DefaultResourceLoader());
+        ReflectionTestUtils.setField(keyRing, "algorithmName", algorithm);
+        ReflectionTestUtils.setField(keyRing, "secretKey", secretKey);
+        ReflectionTestUtils.setField(keyRing, "keystoreLocation", "");
+        ReflectionTestUtils.setField(keyRing, "keystoreType", "PKCS12");
+        ReflectionTestUtils.setField(keyRing, "keystorePassword", "");
+        ReflectionTestUtils.setField(keyRing, "activeKid", "");
+        ReflectionTestUtils.setField(keyRing, "resetSecretKey", resetSecretKey);
+        ReflectionTestUtils.setField(keyRing, "allowEphemeralKey", true);
+        ReflectionTestUtils.invokeMethod(keyRing, "init");
+        return keyRing;
+    }
+
+    private static JwtService jwtService(JwtKeyRing keyRing)
+    {
+        JwtService jwtService = new JwtService(keyRing, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 3_600_000L);
+        ReflectionTestUtils.invokeMethod(jwtService, "init");
+        return jwtService;
+    }
+
+    private static User user()
+    {
+        User user = new User("user", EMAIL, "hash");
+        user.setId(1L);
+        user.setEnabled(true);
+        return user;
+    }
+
+    @Test
+    void resetTokenIsRejectedAsAnAccessToken()
+    {
+        // Without a reset-secret-key both kinds are signed with the same key, the typ header still keeps them apart
+        String secret = randomSecret();
+        JwtService jwtService = jwtService(keyRing("HS256", secret, ""));
+
+        String resetToken = jwtService.generateResetToken(EMAIL);
+
+        assertThrows(RuntimeException.class, () -> jwtService.verify(resetToken));
+        assertTrue(jwtService.verifyResetToken(resetToken).isPasswordReset());
+    }
+
+    @Test
+    void accessTokenIsRejectedAsAResetToken()
+    {
+        JwtService jwtService = jwtService(keyRing("HS256", randomSecret(), ""));
+
+        String accessToken = jwtService.generateToken(user());
+
+        assertThrows(RuntimeException.class, () -> jwtService.verifyResetToken(accessToken));
+        assertEquals(1L, jwtService.verify(accessToken).userId());
+    }
+
+    @Test
+    void resetTokenSignedWithTheAccessKeyIsRejected()
+    {
+        String accessSecret = randomSecret();
+        JwtService jwtService = jwtService(keyRing("HS256", accessSecret, randomSecret()));
+
+        // Correct typ and aud, but signed with the access key instead of the reset key
+        String forged = Jwts.builder()
+                .setHeaderParam(Header.TYPE, JwtService.RESET_TOKEN_TYPE)
+                .claim(JwtService.PURPOSE_CLAIM, VerifiedToken.PASSWORD_RESET_PURPOSE)
+                .setAudience(JwtService.RESET_AUDIENCE)
+                .setSubject(EMAIL)
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(Base64.getDecoder().decode(accessSecret)), SignatureAlgorithm.HS256)
+                .compact();
+
+        assertThrows(RuntimeException.class, () -> jwtService.verifyResetToken(forged));
+    }
+
+    @Test
+    void resetTokenWithoutTheAudienceIsRejected()
+    {
+        JwtKeyRing keyRing = keyRing("HS256", randomSecret(), randomSecret());
+        JwtService jwtService = jwtService(keyRing);
+
+        String withoutAudience = Jwts.builder()
+                .setHeaderParam(Header.TYPE, JwtService.RESET_TOKEN_TYPE)
+                .claim(JwtService.PURPOSE_CLAIM, VerifiedToken.PASSWORD_RESET_PURPOSE)
+                .setSubject(EMAIL)
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(keyRing.getResetKey(), SignatureAlgorithm.HS256)
+                .compact();
+
+        assertThrows(RuntimeException.class, () -> jwtService.verifyResetToken(withoutAudience));
+    }
+
+    @Test
+    void jwksPublishesOnlyTheAsymmetricSigningKey()
+    {
+        JwtKeyRing keyRing = keyRing("RS256", "", randomSecret());
+
+        List<Map<String, Object>> jwks = keyRing.jwks();
+
+        assertEquals(1, jwks.size());
+        assertEquals("RSA", jwks.get(0).get("kty"));
+        assertEquals(keyRing.getSigningKid(), jwks.get(0).get("kid"));
+        assertFalse(jwks.get(0).containsKey("k"));
+    }
+
+    @Test
+    void jwksIsEmptyForSharedSecrets()
+    {
+        assertTrue(keyRing("HS256", randomSecret(), randomSecret()).jwks().isEmpty());
+    }
+}
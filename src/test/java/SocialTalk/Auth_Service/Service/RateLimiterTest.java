@@ -0,0 +1,129 @@
+package SocialTalk.Auth_Service.Service;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+    private static final long SECOND = Duration.ofSeconds(1).toNanos();
+
+    private final AtomicLong now = new AtomicLong();
+
+    // Three login requests per three seconds: one token every second and a burst of three
+    private RateLimiter rateLimiter(int maxBuckets)
+    {
+        RateLimiter rateLimiter = new RateLimiter(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(rateLimiter, "enabled", true);
+        ReflectionTestUtils.setField(rateLimiter, "loginCapacity", 3);
+        ReflectionTestUtils.setField(rateLimiter, "loginPeriod", Duration.ofSeconds(3));
+        ReflectionTestUtils.setField(rateLimiter, "resendCapacity", 3);
+        ReflectionTestUtils.setField(rateLimiter, "resendPeriod", Duration.ofSeconds(3));
+        ReflectionTestUtils.setField(rateLimiter, "resetCapacity", 3);
+        ReflectionTestUtils.setField(rateLimiter, "resetPeriod", Duration.ofSeconds(3));
+        ReflectionTestUtils.setField(rateLimiter, "verifyCapacity", 3);
+        ReflectionTestUtils.setField(rateLimiter, "verifyPeriod", Duration.ofSeconds(3));
+        ReflectionTestUtils.setField(rateLimiter, "maxBuckets", maxBuckets);
+        ReflectionTestUtils.setField(rateLimiter, "ticker", (Ticker) now::get);
+        ReflectionTestUtils.invokeMethod(rateLimiter, "init");
+        return rateLimiter;
+    }
+
+    @Test
+    void allowsBurstUpToCapacityThenRejects()
+    {
+        RateLimiter rateLimiter = rateLimiter(100);
+        for (int i = 0; i < 3; i++)
+        {
+            rateLimiter.acquire(RateLimiter.LOGIN, "10.0.0.1", null);
+        }
+
+        RateLimitExceededException rejected = assertThrows(RateLimitExceededException.class,
+                () -> rateLimiter.acquire(RateLimiter.LOGIN, "10.0.0.1", null));
+        assertEquals(1, rejected.getRetryAfterSeconds());
+    }
+
+    @Test
+    void refillsOneRequestPerEmissionInterval()
+    {
+        RateLimiter rateLimiter = rateLimiter(100);
+        for (int i = 0; i < 3; i++)
+        {
+            rateLimiter.acquire(RateLimiter.LOGIN, "10.0.0.1", null);
+        }
+
+        now.set(SECOND);
+        assertDoesNotThrow(() -> rateLimiter.acquire(RateLimiter.LOGIN, "10.0.0.1", null));
+        assertThrows(RateLimitExceededException.class,
+                () -> rateLimiter.acquire(RateLimiter.LOGIN, "10.0.0.1", null));
+    }
+
+    @Test
+    void limitsAnEmailAcrossAddresses()
+    {
+        RateLimiter rateLimiter = rateLimiter(100);
+        rateLimiter.acquire(RateLimiter.LOGIN, "10.0.0.1", "user@example.com");
+        rateLimiter.acquire(RateLimiter.LOGIN, "10.0.0.2", "User@Example.com");
+        rateLimiter.acquire(RateLimiter.LOGIN, "10.0.0.3", " user@example.com ");
+
+        assertThrows(RateLimitExceededException.class,
+                () -> rateLimiter.acquire(RateLimiter.LOGIN, "10.0.0.4", "user@example.com"));
+        assertDoesNotThrow(() -> rateLimiter.acquire(RateLimiter.LOGIN, "10.0.0.4", "other@example.com"));
+    }
+
+    @Test
+    void keepsEndpointsAndAddressesApart()
+    {
+        RateLimiter rateLimiter = rateLimiter(100);
+        for (int i = 0; i < 3; i++)
+        {
+            rateLimiter.acquire(RateLimiter.LOGIN, "10.0.0.1", null);
+        }
+
+        assertDoesNotThrow(() -> rateLimiter.acquire(RateLimiter.LOGIN, "10.0.0.2", null));
+        assertDoesNotThrow(() -> rateLimiter.acquire(RateLimiter.RESET, "10.0.0.1", null));
+    }
+
+    @Test
+    void dropsBucketsOnceTheyHaveRefilled()
+    {
+        RateLimiter rateLimiter = rateLimiter(100);
+        for (int i = 0; i < 3; i++)
+        {
+            rateLimiter.acquire(RateLimiter.LOGIN, "10.0.0.1", null);
+        }
+        rateLimiter.acquire(RateLimiter.LOGIN, "10.0.0.2", null);
+
+        now.set(SECOND);
+        assertEquals(2, rateLimiter.bucketCount());
+        assertThrows(RateLimitExceededException.class, () -> {
+            rateLimiter.acquire(RateLimiter.LOGIN, "10.0.0.1", null);
+            rateLimiter.acquire(RateLimiter.LOGIN, "10.0.0.1", null);
+        });
+
+        now.set(10 * SECOND);
+        assertEquals(0, rateLimiter.bucketCount());
+        assertDoesNotThrow(() -> rateLimiter.acquire(RateLimiter.LOGIN, "10.0.0.1", null));
+    }
+
+    @Test
+    void admitsNewKeysWhileStayingWithinTheBucketLimit()
+    {
+        RateLimiter rateLimiter = rateLimiter(2);
+        for (int i = 1; i <= 10; i++)
+        {
+            String address = "10.0.0." + i;
+            assertDoesNotThrow(() -> rateLimiter.acquire(RateLimiter.LOGIN, address, null));
+        }
+
+        assertTrue(rateLimiter.bucketCount() <= 2);
+    }
+}
@@ -0,0 +1,152 @@
+package SocialTalk.Auth_Service.Service;
+
+import SocialTalk.Auth_Service.Model.RefreshToken;
+import SocialTalk.Auth_Service.Model.User;
+import SocialTalk.Auth_Service.Repository.RefreshTokenRepository;
+import SocialTalk.Auth_Service.Repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RefreshTokenServiceTest {
+    private static final String RAW_TOKEN = "refresh-token";
+    private static final String FAMILY_ID = "family";
+    private static final long USER_ID = 7L;
+
+    private final RefreshTokenRepository refreshTokenRepository = mock(RefreshTokenRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final RefreshTokenService refreshTokenService = refreshTokenService();
+
+    private RefreshTokenService refreshTokenService()
+    {
+        RefreshTokenService service = new RefreshTokenService(refreshTokenRepository, userRepository, mock(TransactionTemplate.class));
+        ReflectionTestUtils.setField(service, "expiration", Duration.ofDays(14));
+        ReflectionTestUtils.setField(service, "familyLifetime", Duration.ofDays(30));
+        return service;
+    }
+
+    private static RefreshToken storedToken()
+    {
+        LocalDateTime now = LocalDateTime.now();
+        RefreshToken token = new RefreshToken(TokenDigest.sha256(RAW_TOKEN), FAMILY_ID, USER_ID, now.plusDays(14), now.plusDays(30));
+        token.setId(1L);
+        return token;
+    }
+
+    private void givenEnabledUser()
+    {
+        User user = new User("user", "user@example.com", "hash");
+        user.setId(USER_ID);
+        user.setEnabled(true);
+        when(userRepository.findById(USER_ID)).thenReturn(Optional.of(user));
+    }
+
+    @Test
+    void rotationReturnsANewTokenInTheSameFamily()
+    {
+        when(refreshTokenRepository.findByTokenHash(TokenDigest.sha256(RAW_TOKEN))).thenReturn(Optional.of(storedToken()));
+        when(refreshTokenRepository.markUsed(anyLong(), any())).thenReturn(1);
+        givenEnabledUser();
+
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(RAW_TOKEN);
+
+        assertNotEquals(RAW_TOKEN, rotation.refreshToken().token());
+        assertEquals(USER_ID, rotation.user().getId());
+        ArgumentCaptor<RefreshToken> saved = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository).save(saved.capture());
+        assertEquals(TokenDigest.sha256(rotation.refreshToken().token()), saved.getValue().getTokenHash());
+        assertEquals(FAMILY_ID, saved.getValue().getFamilyId());
+        verify(refreshTokenRepository, never()).revokeFamily(anyString());
+    }
+
+    @Test
+    void replayingAUsedTokenRevokesTheWholeFamily()
+    {
+        RefreshToken used = storedToken();
+        used.setUsedAt(LocalDateTime.now().minusMinutes(1));
+        when(refreshTokenRepository.findByTokenHash(TokenDigest.sha256(RAW_TOKEN))).thenReturn(Optional.of(used));
+
+        assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.rotate(RAW_TOKEN));
+
+        verify(refreshTokenRepository).revokeFamily(FAMILY_ID);
+        verify(refreshTokenRepository, never()).markUsed(anyLong(), any());
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    @Test
+    void concurrentRefreshesWithTheSameTokenSucceedOnce() throws Exception
+    {
+        // Both requests read the token before either marks it used, the conditional update decides the winner
+        CyclicBarrier bothLookedUp = new CyclicBarrier(2);
+        when(refreshTokenRepository.findByTokenHash(TokenDigest.sha256(RAW_TOKEN))).thenAnswer(invocation -> {
+            bothLookedUp.await(5, TimeUnit.SECONDS);
+            return Optional.of(storedToken());
+        });
+        AtomicBoolean used = new AtomicBoolean();
+        when(refreshTokenRepository.markUsed(anyLong(), any())).thenAnswer(invocation -> used.compareAndSet(false, true) ? 1 : 0);
+        givenEnabledUser();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<Object> outcomes = new ArrayList<>();
+        try {
+            List<Future<RefreshTokenService.Rotation>> refreshes = List.of(
+                    executor.submit(() -> refreshTokenService.rotate(RAW_TOKEN)),
+                    executor.submit(() -> refreshTokenService.rotate(RAW_TOKEN)));
+            for (Future<RefreshTokenService.Rotation> refresh : refreshes)
+            {
+                try {
+                    outcomes.add(refresh.get(5, TimeUnit.SECONDS));
+                } catch (ExecutionException e) {
+                    outcomes.add(e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, outcomes.stream().filter(RefreshTokenService.Rotation.class::isInstance).count());
+        assertInstanceOf(InvalidRefreshTokenException.class,
+                outcomes.stream().filter(outcome -> !(outcome instanceof RefreshTokenService.Rotation)).findFirst().orElseThrow());
+        verify(refreshTokenRepository, times(1)).save(any());
+        verify(refreshTokenRepository).revokeFamily(FAMILY_ID);
+    }
+
+    @Test
+    void revokesOnlyTheCallersOwnSession()
+    {
+        when(refreshTokenRepository.findByTokenHash(TokenDigest.sha256(RAW_TOKEN))).thenReturn(Optional.of(storedToken()));
+
+        refreshTokenService.revoke(RAW_TOKEN, USER_ID + 1);
+        verify(refreshTokenRepository, never()).revokeFamily(anyString());
+
+        refreshTokenService.revoke(RAW_TOKEN, USER_ID);
+        verify(refreshTokenRepository).revokeFamily(FAMILY_ID);
+    }
+}
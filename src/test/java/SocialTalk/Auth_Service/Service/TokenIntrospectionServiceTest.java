@@ -0,0 +1,125 @@
+package SocialTalk.Auth_Service.Service;
+
+import SocialTalk.Auth_Service.Responses.IntrospectionResult;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TokenIntrospectionServiceTest {
+    private static final String TOKEN = "header.payload.signature";
+
+    private final JwtService jwtService = mock(JwtService.class);
+    private final TokenRevocationService tokenRevocationService = mock(TokenRevocationService.class);
+    private final SecurityVersionRegistry securityVersionRegistry = mock(SecurityVersionRegistry.class);
+    private final TokenIntrospectionService introspectionService = introspectionService();
+
+    private TokenIntrospectionService introspectionService()
+    {
+        TokenIntrospectionService service = new TokenIntrospectionService(
+                jwtService, tokenRevocationService, securityVersionRegistry, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "maxBatchSize", 100);
+        ReflectionTestUtils.setField(service, "maxCacheSize", 100L);
+        ReflectionTestUtils.setField(service, "invalidTtl", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(service, "maxInvalidCacheSize", 100L);
+        ReflectionTestUtils.invokeMethod(service, "init");
+        when(securityVersionRegistry.isCurrent(anyLong(), anyInt())).thenReturn(true);
+        return service;
+    }
+
+    private static VerifiedToken accessToken(Instant expiresAt)
+    {
+        return new VerifiedToken("jti", "user", 1L, "user@example.com", "user", true, 0, expiresAt, null);
+    }
+
+    private long cachedEntries(String cache)
+    {
+        Cache<?, ?> entries = (Cache<?, ?>) ReflectionTestUtils.getField(introspectionService, cache);
+        entries.cleanUp();
+        return entries.estimatedSize();
+    }
+
+    @Test
+    void verifiesTheSignatureOnlyOnce()
+    {
+        when(jwtService.verify(TOKEN)).thenReturn(accessToken(Instant.now().plusSeconds(60)));
+
+        assertTrue(introspectionService.introspect(TOKEN).active());
+        assertTrue(introspectionService.introspect(TOKEN).active());
+
+        verify(jwtService, times(1)).verify(TOKEN);
+    }
+
+    @Test
+    void revokedTokenIsInactiveEvenWhenCached()
+    {
+        VerifiedToken token = accessToken(Instant.now().plusSeconds(60));
+        when(jwtService.verify(TOKEN)).thenReturn(token);
+        assertTrue(introspectionService.introspect(TOKEN).active());
+
+        when(tokenRevocationService.isRevoked(token)).thenReturn(true);
+
+        assertEquals(IntrospectionResult.INACTIVE, introspectionService.introspect(TOKEN));
+        verify(jwtService, times(1)).verify(TOKEN);
+    }
+
+    @Test
+    void tokenFromAnOlderSecurityVersionIsInactiveEvenWhenCached()
+    {
+        when(jwtService.verify(TOKEN)).thenReturn(accessToken(Instant.now().plusSeconds(60)));
+        assertTrue(introspectionService.introspect(TOKEN).active());
+
+        when(securityVersionRegistry.isCurrent(1L, 0)).thenReturn(false);
+
+        assertFalse(introspectionService.introspect(TOKEN).active());
+        verify(jwtService, times(1)).verify(TOKEN);
+    }
+
+    @Test
+    void expiredTokenIsInactive() throws InterruptedException
+    {
+        when(jwtService.verify(TOKEN)).thenReturn(accessToken(Instant.now().plusMillis(200)));
+        assertTrue(introspectionService.introspect(TOKEN).active());
+
+        Thread.sleep(400);
+
+        assertEquals(IntrospectionResult.INACTIVE, introspectionService.introspect(TOKEN));
+    }
+
+    @Test
+    void junkTokensGoToTheInvalidCache()
+    {
+        when(jwtService.verify(any())).thenThrow(new RuntimeException("Invalid JWT Token"));
+
+        assertEquals(IntrospectionResult.INACTIVE, introspectionService.introspect("junk"));
+        assertEquals(IntrospectionResult.INACTIVE, introspectionService.introspect("junk"));
+
+        verify(jwtService, times(1)).verify("junk");
+        assertEquals(1, cachedEntries("invalid"));
+        assertEquals(0, cachedEntries("verified"));
+    }
+
+    @Test
+    void passwordResetTokenIsNotActive()
+    {
+        VerifiedToken resetToken = new VerifiedToken("jti", "user@example.com", null, null, null, null, 0,
+                Instant.now().plusSeconds(60), VerifiedToken.PASSWORD_RESET_PURPOSE);
+        when(jwtService.verify(TOKEN)).thenReturn(resetToken);
+
+        assertEquals(IntrospectionResult.INACTIVE, introspectionService.introspect(TOKEN));
+    }
+}
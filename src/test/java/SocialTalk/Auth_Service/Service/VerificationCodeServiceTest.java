@@ -0,0 +1,215 @@
+package SocialTalk.Auth_Service.Service;
+
+import SocialTalk.Auth_Service.DataTransferObject.VerifyUserDTO;
+import SocialTalk.Auth_Service.Model.User;
+import SocialTalk.Auth_Service.Model.VerificationCode;
+import SocialTalk.Auth_Service.Model.VerificationPurpose;
+import SocialTalk.Auth_Service.Repository.UserRepository;
+import SocialTalk.Auth_Service.Repository.VerificationCodeRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs against H2 in MySQL mode so the native upsert and the conditional attempt update execute for real.
+// No test transaction: every call commits on its own, like a request does.
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:verification-codes;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "security.verification-code.pepper=test-verification-code-pepper",
+        "security.verification-code.max-attempts=3",
+        "resetUrl=http://localhost:3000/reset-password",
+        "eureka.client.enabled=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({VerificationCodeService.class, AuthenticationService.class, VerificationCodeServiceTest.Metrics.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class VerificationCodeServiceTest {
+    private static final Duration TTL = Duration.ofMinutes(15);
+    private static final VerificationPurpose PURPOSE = VerificationPurpose.ACCOUNT_VERIFICATION;
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry()
+        {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private VerificationCodeService verificationCodeService;
+    @Autowired
+    private AuthenticationService authenticationService;
+    @Autowired
+    private VerificationCodeRepository verificationCodeRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private PasswordEncoder passwordEncoder;
+    @MockBean
+    private AuthenticationManager authenticationManager;
+    @MockBean
+    private EmailOutboxService emailOutboxService;
+    @MockBean
+    private EmailTemplateService emailTemplateService;
+    @MockBean
+    private JwtService jwtService;
+    @MockBean
+    private VerifiedTokenCache verifiedTokenCache;
+    @MockBean
+    private SecurityVersionRegistry securityVersionRegistry;
+    @MockBean
+    private CachedUserDetailsService userDetailsService;
+    @MockBean
+    private RefreshTokenService refreshTokenService;
+    @MockBean
+    private TokenRevocationService tokenRevocationService;
+
+    @AfterEach
+    void cleanUp()
+    {
+        verificationCodeRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    private VerificationCode stored(Long userId)
+    {
+        return verificationCodeRepository.findByUserIdAndPurpose(userId, PURPOSE).orElseThrow();
+    }
+
+    private static String wrong(String code)
+    {
+        return code.equals("999999") ? "100000" : "999999";
+    }
+
+    @Test
+    void acceptsTheIssuedCodeOnce()
+    {
+        String code = verificationCodeService.issue(1L, PURPOSE, TTL);
+
+        assertEquals(VerificationCodeService.Outcome.VERIFIED, verificationCodeService.check(1L, PURPOSE, code));
+        assertEquals(VerificationCodeService.Outcome.MISSING, verificationCodeService.check(1L, PURPOSE, code));
+    }
+
+    @Test
+    void reservesAnAttemptForEveryGuess()
+    {
+        String code = verificationCodeService.issue(1L, PURPOSE, TTL);
+
+        assertEquals(VerificationCodeService.Outcome.INVALID, verificationCodeService.check(1L, PURPOSE, wrong(code)));
+        assertEquals(1, stored(1L).getAttempts());
+        assertEquals(VerificationCodeService.Outcome.INVALID, verificationCodeService.check(1L, PURPOSE, null));
+        assertEquals(2, stored(1L).getAttempts());
+    }
+
+    @Test
+    void reserveAttemptStopsAtTheLimit()
+    {
+        verificationCodeService.issue(1L, PURPOSE, TTL);
+        Long id = stored(1L).getId();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        assertEquals(1, transaction.execute(status -> verificationCodeRepository.reserveAttempt(id, 2)));
+        assertEquals(1, transaction.execute(status -> verificationCodeRepository.reserveAttempt(id, 2)));
+        assertEquals(0, transaction.execute(status -> verificationCodeRepository.reserveAttempt(id, 2)));
+        assertEquals(2, stored(1L).getAttempts());
+    }
+
+    @Test
+    void rejectsTheRightCodeAfterTooManyWrongOnes()
+    {
+        String code = verificationCodeService.issue(1L, PURPOSE, TTL);
+        for (int i = 0; i < 3; i++)
+        {
+            assertEquals(VerificationCodeService.Outcome.INVALID, verificationCodeService.check(1L, PURPOSE, wrong(code)));
+        }
+
+        assertEquals(VerificationCodeService.Outcome.TOO_MANY_ATTEMPTS, verificationCodeService.check(1L, PURPOSE, code));
+        assertEquals(3, stored(1L).getAttempts());
+    }
+
+    @Test
+    void rejectsAnExpiredCode()
+    {
+        String code = verificationCodeService.issue(1L, PURPOSE, Duration.ofMinutes(-1));
+
+        assertEquals(VerificationCodeService.Outcome.EXPIRED, verificationCodeService.check(1L, PURPOSE, code));
+        assertEquals(0, stored(1L).getAttempts());
+    }
+
+    @Test
+    void reportsAMissingCode()
+    {
+        assertEquals(VerificationCodeService.Outcome.MISSING, verificationCodeService.check(1L, PURPOSE, "123456"));
+    }
+
+    @Test
+    void reissuingReplacesTheCodeAndResetsTheAttempts()
+    {
+        String first = verificationCodeService.issue(1L, PURPOSE, TTL);
+        verificationCodeService.check(1L, PURPOSE, wrong(first));
+        String firstHash = stored(1L).getCodeHash();
+
+        String second = verificationCodeService.issue(1L, PURPOSE, TTL);
+
+        assertEquals(1, verificationCodeRepository.count());
+        assertEquals(0, stored(1L).getAttempts());
+        if (!first.equals(second))
+        {
+            assertNotEquals(firstHash, stored(1L).getCodeHash());
+            assertEquals(VerificationCodeService.Outcome.INVALID, verificationCodeService.check(1L, PURPOSE, first));
+        }
+        assertEquals(VerificationCodeService.Outcome.VERIFIED, verificationCodeService.check(1L, PURPOSE, second));
+    }
+
+    @Test
+    void failedVerificationStillUsesUpTheAttempt()
+    {
+        // verifyUser throws on a wrong code, noRollbackFor keeps the reserved attempt committed
+        User user = userRepository.save(new User("user", "user@example.com", "hash"));
+        String code = verificationCodeService.issue(user.getId(), PURPOSE, TTL);
+        VerifyUserDTO input = new VerifyUserDTO();
+        input.setEmail(user.getEmail());
+        input.setVerificationCode(wrong(code));
+
+        assertThrows(InvalidVerificationCodeException.class, () -> authenticationService.verifyUser(input));
+
+        assertEquals(1, stored(user.getId()).getAttempts());
+        assertFalse(userRepository.findById(user.getId()).orElseThrow().isEnabled());
+
+        input.setVerificationCode(code);
+        authenticationService.verifyUser(input);
+
+        assertTrue(userRepository.findById(user.getId()).orElseThrow().isEnabled());
+        assertTrue(verificationCodeRepository.findByUserIdAndPurpose(user.getId(), PURPOSE).isEmpty());
+    }
+}